@@ -15,6 +15,7 @@ import org.jellyfin.androidtv.preference.TelemetryPreferences
 import org.jellyfin.androidtv.preference.constant.UserSelectBehavior.DISABLED
 import org.jellyfin.androidtv.preference.constant.UserSelectBehavior.LAST_USER
 import org.jellyfin.androidtv.preference.constant.UserSelectBehavior.SPECIFIC_USER
+import org.jellyfin.androidtv.util.sdk.ApiHttpCache
 import org.jellyfin.androidtv.util.sdk.forUser
 import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.api.client.exception.ApiClientException
@@ -56,6 +57,7 @@ class SessionRepositoryImpl(
 	private val userRepository: UserRepository,
 	private val serverRepository: ServerRepository,
 	private val telemetryPreferences: TelemetryPreferences,
+	private val apiHttpCache: ApiHttpCache,
 ) : SessionRepository {
 	private val currentSessionMutex = Mutex()
 	private val _currentSession = MutableStateFlow<Session?>(null)
@@ -115,6 +117,7 @@ class SessionRepositoryImpl(
 		userRepository.updateCurrentUser(null)
 		_currentSession.value = null
 		apiBinder.updateSession(null, userApiClient.deviceInfo)
+		apiHttpCache.clear()
 		_state.value = SessionRepositoryState.READY
 	}
 
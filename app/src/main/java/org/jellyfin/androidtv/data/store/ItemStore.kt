@@ -0,0 +1,45 @@
+package org.jellyfin.androidtv.data.store
+
+import org.jellyfin.sdk.model.api.BaseItemDto
+import org.jellyfin.sdk.model.api.UserItemDataDto
+import java.util.UUID
+
+/**
+ * In-memory store of [BaseItemDto]s keyed by id. Rows showing the same item share a single instance
+ * and user data changes are applied to the stored item instead of fetching it again.
+ */
+class ItemStore(
+	private val maxItems: Int = 1000,
+) {
+	// Access ordered so the least recently used item is dropped first
+	private val items = object : LinkedHashMap<UUID, BaseItemDto>(16, 0.75f, true) {
+		override fun removeEldestEntry(eldest: MutableMap.MutableEntry<UUID, BaseItemDto>?) = size > maxItems
+	}
+
+	operator fun get(id: UUID): BaseItemDto? = synchronized(items) { items[id] }
+
+	/**
+	 * Add or update [item]. Returns the stored instance when it is equal to [item].
+	 */
+	fun put(item: BaseItemDto): BaseItemDto = synchronized(items) {
+		val current = items[item.id]
+		if (current == item) return current
+
+		items[item.id] = item
+		item
+	}
+
+	/**
+	 * Apply [userData] to the stored items. Returns the ids of the items that changed, user data for
+	 * items that are not in the store is ignored.
+	 */
+	fun updateUserData(userData: Collection<UserItemDataDto>): Set<UUID> = synchronized(items) {
+		userData.mapNotNullTo(mutableSetOf()) { data ->
+			val current = items[data.itemId] ?: return@mapNotNullTo null
+			if (current.userData == data) return@mapNotNullTo null
+
+			items[data.itemId] = current.copy(userData = data)
+			data.itemId
+		}
+	}
+}
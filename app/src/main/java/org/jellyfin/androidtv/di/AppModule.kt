@@ -21,6 +21,7 @@ import org.jellyfin.androidtv.data.repository.NotificationsRepositoryImpl
 import org.jellyfin.androidtv.data.repository.UserViewsRepository
 import org.jellyfin.androidtv.data.repository.UserViewsRepositoryImpl
 import org.jellyfin.androidtv.data.service.BackgroundService
+import org.jellyfin.androidtv.data.store.ItemStore
 import org.jellyfin.androidtv.integration.dream.DreamViewModel
 import org.jellyfin.androidtv.ui.ScreensaverViewModel
 import org.jellyfin.androidtv.ui.itemhandling.ItemLauncher
@@ -43,12 +44,14 @@ import org.jellyfin.androidtv.util.KeyProcessor
 import org.jellyfin.androidtv.util.MarkdownRenderer
 import org.jellyfin.androidtv.util.PlaybackHelper
 import org.jellyfin.androidtv.util.apiclient.ReportingHelper
+import org.jellyfin.androidtv.util.sdk.ApiHttpCache
 import org.jellyfin.androidtv.util.sdk.SdkPlaybackHelper
 import org.jellyfin.androidtv.util.sdk.legacy
 import org.jellyfin.apiclient.AppInfo
 import org.jellyfin.apiclient.android
 import org.jellyfin.apiclient.logging.AndroidLogger
 import org.jellyfin.sdk.android.androidDevice
+import org.jellyfin.sdk.api.okhttp.OkHttpFactory
 import org.jellyfin.sdk.createJellyfin
 import org.jellyfin.sdk.model.ClientInfo
 import org.jellyfin.sdk.model.DeviceInfo
@@ -65,6 +68,8 @@ val defaultDeviceInfo = named("defaultDeviceInfo")
 val appModule = module {
 	// New SDK
 	single(defaultDeviceInfo) { androidDevice(get()) }
+	single { ApiHttpCache(androidContext()) }
+	single { OkHttpFactory(get<ApiHttpCache>().createClient()) }
 	single {
 		createJellyfin {
 			context = androidContext()
@@ -75,6 +80,10 @@ val appModule = module {
 
 			// Change server version
 			minimumServerVersion = ServerRepository.minimumServerVersion
+
+			// Use the client with the HTTP cache
+			apiClientFactory = get<OkHttpFactory>()
+			socketConnectionFactory = get<OkHttpFactory>()
 		}
 	}
 
@@ -113,6 +122,7 @@ val appModule = module {
 
 	// Non API related
 	single { DataRefreshService() }
+	single { ItemStore() }
 	single { PlaybackControllerContainer() }
 
 	single<UserRepository> { UserRepositoryImpl() }
@@ -10,15 +10,21 @@ import org.jellyfin.androidtv.BuildConfig
 import org.jellyfin.androidtv.R
 import org.jellyfin.androidtv.preference.UserPreferences
 import org.jellyfin.androidtv.preference.UserSettingPreferences
+import org.jellyfin.androidtv.preference.constant.toBufferOptions
 import org.jellyfin.androidtv.ui.browsing.MainActivity
+import org.jellyfin.androidtv.ui.playback.ExternalSubtitleCache
 import org.jellyfin.androidtv.ui.playback.GarbagePlaybackLauncher
 import org.jellyfin.androidtv.ui.playback.MediaManager
 import org.jellyfin.androidtv.ui.playback.RewritePlaybackLauncher
 import org.jellyfin.androidtv.ui.playback.VideoQueueManager
+import org.jellyfin.androidtv.ui.playback.overlay.TrickplayTileCache
 import org.jellyfin.androidtv.ui.playback.rewrite.RewriteMediaManager
+import org.jellyfin.playback.core.bandwidth.BandwidthEstimator
+import org.jellyfin.playback.core.metrics.playbackMetricsPlugin
 import org.jellyfin.playback.core.playbackManager
 import org.jellyfin.playback.jellyfin.jellyfinPlugin
 import org.jellyfin.playback.media3.exoplayer.ExoPlayerOptions
+import org.jellyfin.playback.media3.exoplayer.cache.MediaCacheOptions
 import org.jellyfin.playback.media3.exoplayer.exoPlayerPlugin
 import org.jellyfin.playback.media3.session.MediaSessionOptions
 import org.jellyfin.playback.media3.session.media3SessionPlugin
@@ -26,6 +32,7 @@ import org.jellyfin.sdk.api.client.ApiClient
 import org.koin.android.ext.koin.androidContext
 import org.koin.core.scope.Scope
 import org.koin.dsl.module
+import java.io.File
 import kotlin.time.Duration.Companion.milliseconds
 import org.jellyfin.androidtv.ui.playback.PlaybackManager as LegacyPlaybackManager
 
@@ -33,6 +40,8 @@ val playbackModule = module {
 	single { LegacyPlaybackManager(get()) }
 	single { VideoQueueManager() }
 	single<MediaManager> { RewriteMediaManager(get(), get(), get(), get()) }
+	single { TrickplayTileCache() }
+	single { ExternalSubtitleCache(androidContext()) }
 
 	factory {
 		val preferences = get<UserPreferences>()
@@ -66,8 +75,11 @@ fun Scope.createPlaybackManager() = playbackManager(androidContext()) {
 		httpReadTimeout = api.httpClientOptions.requestTimeout,
 		preferFfmpeg = userPreferences[UserPreferences.preferExoPlayerFfmpeg],
 		enableDebugLogging = userPreferences[UserPreferences.debuggingEnabled],
+		mediaCache = MediaCacheOptions(),
+		buffer = userPreferences[UserPreferences.playbackBufferProfile].toBufferOptions(androidContext()),
 	)
-	install(exoPlayerPlugin(get(), exoPlayerOptions))
+	val bandwidthEstimator = BandwidthEstimator()
+	install(exoPlayerPlugin(get(), exoPlayerOptions, bandwidthEstimator))
 
 	val mediaSessionOptions = MediaSessionOptions(
 		channelId = notificationChannelId,
@@ -77,7 +89,13 @@ fun Scope.createPlaybackManager() = playbackManager(androidContext()) {
 	)
 	install(media3SessionPlugin(get(), mediaSessionOptions))
 
-	install(jellyfinPlugin(get()))
+	install(jellyfinPlugin(
+		api = get(),
+		journalFile = File(androidContext().filesDir, "play-session-journal.jsonl"),
+		bandwidthEstimator = bandwidthEstimator,
+	))
+
+	install(playbackMetricsPlugin(File(androidContext().filesDir, "playback-metrics.log")))
 
 	// Options
 	val userSettingPreferences = get<UserSettingPreferences>()
@@ -7,6 +7,7 @@ import org.jellyfin.androidtv.preference.constant.AppTheme
 import org.jellyfin.androidtv.preference.constant.AudioBehavior
 import org.jellyfin.androidtv.preference.constant.ClockBehavior
 import org.jellyfin.androidtv.preference.constant.NextUpBehavior
+import org.jellyfin.androidtv.preference.constant.PlaybackBufferProfile
 import org.jellyfin.androidtv.preference.constant.RatingType
 import org.jellyfin.androidtv.preference.constant.RefreshRateSwitchingBehavior
 import org.jellyfin.androidtv.preference.constant.WatchedIndicatorBehavior
@@ -98,6 +99,11 @@ class UserPreferences(context: Context) : SharedPreferenceStore(
 		 */
 		var preferExoPlayerFfmpeg = booleanPreference("exoplayer_prefer_ffmpeg", defaultValue = false)
 
+		/**
+		 * Buffer policy used by ExoPlayer.
+		 */
+		var playbackBufferProfile = enumPreference("playback_buffer_profile", PlaybackBufferProfile.AUTO)
+
 		/* Playback - Audio related */
 		/**
 		 * Preferred behavior for audio streaming.
@@ -141,6 +147,11 @@ class UserPreferences(context: Context) : SharedPreferenceStore(
 		 */
 		var playbackRewriteVideoEnabled = booleanPreference("playback_new", false)
 
+		/**
+		 * Show the player statistics overlay during video playback
+		 */
+		var playbackStatsOverlayEnabled = booleanPreference("playback_stats_overlay", false)
+
 		/**
 		 * When to show the clock.
 		 */
@@ -0,0 +1,37 @@
+package org.jellyfin.androidtv.preference.constant
+
+import android.content.Context
+import org.jellyfin.androidtv.R
+import org.jellyfin.playback.media3.exoplayer.ExoPlayerBufferOptions
+import org.jellyfin.preference.PreferenceEnum
+
+enum class PlaybackBufferProfile(
+	override val nameRes: Int,
+) : PreferenceEnum {
+	/**
+	 * Select the profile based on the memory of the device.
+	 */
+	AUTO(R.string.pref_buffer_profile_auto),
+
+	/**
+	 * Small buffers for devices with little memory.
+	 */
+	LOW_MEMORY(R.string.pref_buffer_profile_low_memory),
+
+	/**
+	 * The ExoPlayer defaults.
+	 */
+	DEFAULT(R.string.pref_buffer_profile_default),
+
+	/**
+	 * Deep forward buffers for high bitrate media.
+	 */
+	HIGH_MEMORY(R.string.pref_buffer_profile_high_memory),
+}
+
+fun PlaybackBufferProfile.toBufferOptions(context: Context) = when (this) {
+	PlaybackBufferProfile.AUTO -> ExoPlayerBufferOptions.forDevice(context)
+	PlaybackBufferProfile.LOW_MEMORY -> ExoPlayerBufferOptions.LOW_MEMORY
+	PlaybackBufferProfile.DEFAULT -> ExoPlayerBufferOptions.DEFAULT
+	PlaybackBufferProfile.HIGH_MEMORY -> ExoPlayerBufferOptions.HIGH_MEMORY
+}
@@ -25,6 +25,7 @@ import org.jellyfin.androidtv.data.querying.GetSpecialsRequest;
 import org.jellyfin.androidtv.data.querying.GetTrailersRequest;
 import org.jellyfin.androidtv.data.querying.GetUserViewsRequest;
 import org.jellyfin.androidtv.data.repository.UserViewsRepository;
+import org.jellyfin.androidtv.data.store.ItemStore;
 import org.jellyfin.androidtv.ui.GridButton;
 import org.jellyfin.androidtv.ui.browsing.BrowseGridFragment;
 import org.jellyfin.androidtv.ui.browsing.EnhancedBrowseFragment;
@@ -102,6 +103,7 @@ public class ItemRowAdapter extends MutableObjectAdapter<Object> {
 
     private final Lazy<org.jellyfin.sdk.api.client.ApiClient> api = inject(org.jellyfin.sdk.api.client.ApiClient.class);
     private final Lazy<UserViewsRepository> userViewsRepository = inject(UserViewsRepository.class);
+    private final Lazy<ItemStore> itemStore = inject(ItemStore.class);
     private Context context;
 
     private boolean isCurrentlyRetrieving() {
@@ -676,7 +678,7 @@ public class ItemRowAdapter extends MutableObjectAdapter<Object> {
     private void loadStaticItems() {
         if (mItems != null) {
             for (org.jellyfin.sdk.model.api.BaseItemDto item : mItems) {
-                add(new BaseItemDtoBaseRowItem(item));
+                add(new BaseItemDtoBaseRowItem(itemStore.getValue().put(item)));
             }
             itemsLoaded = mItems.size();
         } else {
@@ -13,6 +13,7 @@ import org.jellyfin.androidtv.data.querying.GetAdditionalPartsRequest
 import org.jellyfin.androidtv.data.querying.GetSpecialsRequest
 import org.jellyfin.androidtv.data.querying.GetTrailersRequest
 import org.jellyfin.androidtv.data.repository.UserViewsRepository
+import org.jellyfin.androidtv.data.store.ItemStore
 import org.jellyfin.androidtv.ui.GridButton
 import org.jellyfin.androidtv.ui.browsing.BrowseGridFragment.SortOption
 import org.jellyfin.sdk.api.client.ApiClient
@@ -25,9 +26,11 @@ import org.jellyfin.sdk.api.client.extensions.tvShowsApi
 import org.jellyfin.sdk.api.client.extensions.userLibraryApi
 import org.jellyfin.sdk.api.client.extensions.userViewsApi
 import org.jellyfin.sdk.api.client.extensions.videosApi
+import org.jellyfin.sdk.model.api.BaseItemDto
 import org.jellyfin.sdk.model.api.ItemFilter
 import org.jellyfin.sdk.model.api.ItemSortBy
 import org.jellyfin.sdk.model.api.SeriesTimerInfoDto
+import org.jellyfin.sdk.model.api.UserItemDataDto
 import org.jellyfin.sdk.model.api.request.GetAlbumArtistsRequest
 import org.jellyfin.sdk.model.api.request.GetArtistsRequest
 import org.jellyfin.sdk.model.api.request.GetItemsRequest
@@ -40,7 +43,9 @@ import org.jellyfin.sdk.model.api.request.GetResumeItemsRequest
 import org.jellyfin.sdk.model.api.request.GetSeasonsRequest
 import org.jellyfin.sdk.model.api.request.GetSimilarItemsRequest
 import org.jellyfin.sdk.model.api.request.GetUpcomingEpisodesRequest
+import org.koin.java.KoinJavaComponent
 import timber.log.Timber
+import java.util.UUID
 import kotlin.math.min
 
 fun <T : Any> ItemRowAdapter.setItems(
@@ -49,6 +54,8 @@ fun <T : Any> ItemRowAdapter.setItems(
 ) {
 	Timber.d("Creating items from $itemsLoaded existing and ${items.size} new, adapter size is ${size()}")
 
+	val itemStore by KoinJavaComponent.inject<ItemStore>(ItemStore::class.java)
+
 	val allItems = buildList {
 		// Add current items before loaded items
 		repeat(itemsLoaded) {
@@ -57,7 +64,10 @@ fun <T : Any> ItemRowAdapter.setItems(
 
 		// Add loaded items
 		val mappedItems = items.mapIndexedNotNull { index, item ->
-			transform(item, itemsLoaded + index)
+			// Share item instances with other rows
+			@Suppress("UNCHECKED_CAST")
+			val storedItem = if (item is BaseItemDto) itemStore.put(item) as T else item
+			transform(storedItem, itemsLoaded + index)
 		}
 		mappedItems.forEach { add(it) }
 
@@ -665,26 +675,19 @@ fun ItemRowAdapter.refreshItem(
 	if (currentBaseRowItem !is BaseItemDtoBaseRowItem || currentBaseRowItem is AudioQueueBaseRowItem) return
 	val currentBaseItem = currentBaseRowItem.baseItem ?: return
 
+	val itemStore by KoinJavaComponent.inject<ItemStore>(ItemStore::class.java)
+
 	lifecycleOwner.lifecycleScope.launch(Dispatchers.IO) {
 		runCatching {
 			api.userLibraryApi.getItem(itemId = currentBaseItem.id).content
-		}.fold(
+		}.map(itemStore::put).fold(
 			onSuccess = { refreshedBaseItem ->
 				withContext(Dispatchers.Main) {
 					val index = indexOf(currentBaseRowItem)
 					// Item could be removed while API was loading, check if the index is valid first
 					if (index == -1) return@withContext
 
-					set(
-						index = index,
-						element = BaseItemDtoBaseRowItem(
-							item = refreshedBaseItem,
-							preferParentThumb = currentBaseRowItem.preferParentThumb,
-							staticHeight = currentBaseRowItem.staticHeight,
-							selectAction = currentBaseRowItem.selectAction,
-							preferSeriesPoster = currentBaseRowItem.preferSeriesPoster
-						)
-					)
+					set(index, currentBaseRowItem.withItem(refreshedBaseItem))
 				}
 			},
 			onFailure = { err ->
@@ -697,3 +700,34 @@ fun ItemRowAdapter.refreshItem(
 		callback()
 	}
 }
+
+/**
+ * Apply [userData] to the items in this row without retrieving the row. Only the user data of each
+ * row's own item is replaced so fields requested by the row are kept. Returns whether any row was
+ * updated.
+ */
+fun ItemRowAdapter.updateUserData(userData: Map<UUID, UserItemDataDto>): Boolean {
+	var updated = false
+
+	repeat(size()) { index ->
+		val rowItem = get(index) as? BaseItemDtoBaseRowItem
+		if (rowItem == null || rowItem is AudioQueueBaseRowItem) return@repeat
+
+		val item = rowItem.baseItem ?: return@repeat
+		val data = userData[item.id]
+		if (data == null || data == item.userData) return@repeat
+
+		set(index, rowItem.withItem(item.copy(userData = data)))
+		updated = true
+	}
+
+	return updated
+}
+
+private fun BaseItemDtoBaseRowItem.withItem(item: BaseItemDto) = BaseItemDtoBaseRowItem(
+	item = item,
+	preferParentThumb = preferParentThumb,
+	staticHeight = staticHeight,
+	selectAction = selectAction,
+	preferSeriesPoster = preferSeriesPoster
+)
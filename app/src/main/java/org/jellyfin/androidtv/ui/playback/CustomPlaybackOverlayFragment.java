@@ -57,6 +57,7 @@ import org.jellyfin.androidtv.ui.livetv.LiveTvGuide;
 import org.jellyfin.androidtv.ui.livetv.LiveTvGuideFragment;
 import org.jellyfin.androidtv.ui.livetv.LiveTvGuideFragmentHelperKt;
 import org.jellyfin.androidtv.ui.livetv.TvManager;
+import org.jellyfin.androidtv.preference.UserPreferences;
 import org.jellyfin.androidtv.ui.navigation.Destinations;
 import org.jellyfin.androidtv.ui.navigation.NavigationRepository;
 import org.jellyfin.androidtv.ui.playback.overlay.LeanbackOverlayFragment;
@@ -134,6 +135,7 @@ public class CustomPlaybackOverlayFragment extends Fragment implements LiveTvGui
     private final Lazy<NavigationRepository> navigationRepository = inject(NavigationRepository.class);
     private final Lazy<BackgroundService> backgroundService = inject(BackgroundService.class);
     private final Lazy<ImageHelper> imageHelper = inject(ImageHelper.class);
+    private final Lazy<UserPreferences> userPreferences = inject(UserPreferences.class);
 
     private final PlaybackOverlayFragmentHelper helper = new PlaybackOverlayFragmentHelper(this);
 
@@ -222,6 +224,16 @@ public class CustomPlaybackOverlayFragment extends Fragment implements LiveTvGui
         if (playbackControllerContainer.getValue().getPlaybackController() != null) {
             playbackControllerContainer.getValue().getPlaybackController().init(new VideoManager((requireActivity()), view, helper), this);
         }
+
+        if (userPreferences.getValue().get(UserPreferences.Companion.getPlaybackStatsOverlayEnabled())) {
+            PlayerStatsView statsView = new PlayerStatsView(requireContext());
+            statsView.setStatsProvider(() -> {
+                PlaybackController playbackController = playbackControllerContainer.getValue().getPlaybackController();
+                if (playbackController == null || playbackController.mVideoManager == null) return null;
+                return playbackController.mVideoManager.getStats();
+            });
+            binding.getRoot().addView(statsView);
+        }
     }
 
     @Override
@@ -0,0 +1,116 @@
+package org.jellyfin.androidtv.ui.playback
+
+import android.content.Context
+import android.net.Uri
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import org.jellyfin.androidtv.data.compat.SubtitleStreamInfo
+import timber.log.Timber
+import java.io.File
+import java.net.HttpURLConnection
+import java.net.URL
+import java.security.MessageDigest
+import java.util.UUID
+
+/**
+ * Disk cache for external subtitle files so they are only downloaded once per item. Downloads run in
+ * their own scope and continue when the caller stops waiting for them.
+ */
+class ExternalSubtitleCache(
+	context: Context,
+	private val maxItems: Int = 20,
+) {
+	companion object {
+		private const val CONNECT_TIMEOUT_MS = 6_000
+		private const val READ_TIMEOUT_MS = 30_000
+		private val IGNORED_QUERY_PARAMETERS = setOf("api_key", "apikey")
+	}
+
+	private val directory = File(context.cacheDir, "subtitles")
+	private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+	private val downloads = mutableMapOf<File, Deferred<File?>>()
+
+	/**
+	 * Get the downloaded file for [info] or null when it is not downloaded yet.
+	 */
+	fun getCachedSubtitle(itemId: UUID, info: SubtitleStreamInfo): File? {
+		val url = info.url ?: return null
+		val file = getFile(itemId, info, url)
+		if (!file.exists()) return null
+
+		file.parentFile?.setLastModified(System.currentTimeMillis())
+		return file
+	}
+
+	fun getSubtitle(itemId: UUID, info: SubtitleStreamInfo): Deferred<File?> {
+		val url = requireNotNull(info.url) { "Subtitle stream ${info.index} has no url" }
+		val file = getFile(itemId, info, url)
+
+		return synchronized(downloads) {
+			downloads.getOrPut(file) {
+				scope.async {
+					try {
+						if (!file.exists()) download(url, file)
+						file.parentFile?.setLastModified(System.currentTimeMillis())
+						file
+					} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+						Timber.w(err, "Failed to download subtitle stream ${info.index}")
+						null
+					} finally {
+						synchronized(downloads) { downloads.remove(file) }
+					}
+				}
+			}
+		}
+	}
+
+	private fun getFile(itemId: UUID, info: SubtitleStreamInfo, url: String) =
+		File(File(directory, itemId.toString()), "${info.index}_${getUrlHash(url)}.${info.format}")
+
+	private fun download(url: String, file: File) {
+		val parent = requireNotNull(file.parentFile)
+		if (!parent.exists()) {
+			parent.mkdirs()
+			trim()
+		}
+
+		val connection = URL(url).openConnection() as HttpURLConnection
+		connection.connectTimeout = CONNECT_TIMEOUT_MS
+		connection.readTimeout = READ_TIMEOUT_MS
+
+		// Write to a temporary file first so a partial download is never used
+		val tempFile = File(parent, "${file.name}.tmp")
+		try {
+			connection.inputStream.use { input ->
+				tempFile.outputStream().use { output -> input.copyTo(output) }
+			}
+			tempFile.renameTo(file)
+		} finally {
+			connection.disconnect()
+			tempFile.delete()
+		}
+	}
+
+	private fun trim() {
+		val items = directory.listFiles()?.sortedByDescending { it.lastModified() } ?: return
+		items.drop(maxItems).forEach { it.deleteRecursively() }
+	}
+
+	// Strip the access token so the same file is used after signing in again
+	private fun getUrlHash(url: String): String {
+		val uri = Uri.parse(url)
+		val normalizedUri = uri.buildUpon().clearQuery().apply {
+			for (name in uri.queryParameterNames.sorted()) {
+				if (name.lowercase() in IGNORED_QUERY_PARAMETERS) continue
+				appendQueryParameter(name, uri.getQueryParameter(name))
+			}
+		}.build()
+
+		return MessageDigest.getInstance("SHA-1")
+			.digest(normalizedUri.toString().toByteArray())
+			.joinToString("") { "%02x".format(it) }
+	}
+}
@@ -11,6 +11,7 @@ import android.view.WindowManager;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.media3.common.MediaItem;
 
 import org.jellyfin.androidtv.R;
 import org.jellyfin.androidtv.data.compat.PlaybackException;
@@ -636,7 +637,8 @@ public class PlaybackController implements PlaybackControllerNotifiable {
         if (mFragment != null) mFragment.updateDisplay();
 
         if (mVideoManager != null) {
-            mVideoManager.setVideoPath(response.getMediaUrl());
+            // side-load downloaded and selected external subtitles, others are added when selected
+            mVideoManager.setVideoPath(response.getMediaUrl(), PlaybackControllerHelperKt.getExternalSubtitles(this, item, mSubtitleStreams, mDefaultSubIndex));
         }
 
         PlaybackControllerHelperKt.applyMediaSegments(this, item, () -> {
@@ -768,6 +770,8 @@ public class PlaybackController implements PlaybackControllerNotifiable {
             if (burningSubs) {
                 stop();
                 play(mCurrentPosition, -1);
+            } else {
+                mVideoManager.disableSubtitleTracks();
             }
             return;
         }
@@ -798,7 +802,22 @@ public class PlaybackController implements PlaybackControllerNotifiable {
         // when burnt-in subtitles are selected, mCurrentOptions SubtitleStreamIndex is set in startItem() as soon as playback starts
         // otherwise mCurrentOptions SubtitleStreamIndex is kept null until now so we knew subtitles needed to be enabled but weren't already
 
-        if (streamInfo.getDeliveryMethod() == SubtitleDeliveryMethod.Embed) {
+        if (streamInfo.getDeliveryMethod() == SubtitleDeliveryMethod.External) {
+            boolean selected = mVideoManager.setExternalSubtitleTrack(index);
+            if (!selected) {
+                // the subtitle is not side-loaded yet, add it to the current media item
+                MediaItem.SubtitleConfiguration subtitle = PlaybackControllerHelperKt.createExternalSubtitle(this, getCurrentlyPlayingItem(), streamInfo);
+                selected = subtitle != null && mVideoManager.addExternalSubtitleTrack(subtitle, index);
+            }
+
+            if (!selected) {
+                if (mFragment != null)
+                    Utils.showToast(mFragment.getContext(), mFragment.getString(R.string.msg_unable_load_subs));
+            } else {
+                mCurrentOptions.setSubtitleStreamIndex(index);
+                mDefaultSubIndex = index;
+            }
+        } else if (streamInfo.getDeliveryMethod() == SubtitleDeliveryMethod.Embed) {
             if (!mVideoManager.setExoPlayerTrack(index, MediaStreamType.SUBTITLE, getCurrentlyPlayingItem().getMediaStreams())) {
                     // error selecting internal subs
                     if (mFragment != null)
@@ -1,14 +1,19 @@
 package org.jellyfin.androidtv.ui.playback
 
+import android.net.Uri
 import androidx.annotation.OptIn
 import androidx.lifecycle.lifecycleScope
+import androidx.media3.common.MediaItem.SubtitleConfiguration
+import androidx.media3.common.MimeTypes
 import androidx.media3.common.util.UnstableApi
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
+import org.jellyfin.androidtv.data.compat.SubtitleStreamInfo
 import org.jellyfin.androidtv.ui.playback.segment.MediaSegmentAction
 import org.jellyfin.androidtv.ui.playback.segment.MediaSegmentRepository
 import org.jellyfin.androidtv.util.sdk.end
 import org.jellyfin.androidtv.util.sdk.start
+import org.jellyfin.apiclient.model.dlna.SubtitleDeliveryMethod
 import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.api.client.extensions.liveTvApi
 import org.jellyfin.sdk.model.api.BaseItemDto
@@ -55,6 +60,69 @@ fun PlaybackController.applyMediaSegments(
 	}
 }
 
+/**
+ * Create the side-loaded subtitle tracks for the player. Downloaded subtitles are always added, other
+ * subtitles are only added when selected by [selectedIndex] so an unused subtitle never delays or
+ * fails playback.
+ */
+fun PlaybackController.getExternalSubtitles(
+	item: BaseItemDto,
+	subtitleStreams: List<SubtitleStreamInfo>?,
+	selectedIndex: Int,
+): List<SubtitleConfiguration> {
+	val externalSubtitleCache by fragment.inject<ExternalSubtitleCache>()
+
+	return subtitleStreams.orEmpty()
+		.filter { info -> info.isSideLoadable }
+		.mapNotNull { info ->
+			val file = externalSubtitleCache.getCachedSubtitle(item.id, info)
+			when {
+				file != null -> info.toSubtitleConfiguration(Uri.fromFile(file))
+				info.index == selectedIndex -> createExternalSubtitle(item, info)
+				else -> null
+			}
+		}
+}
+
+/**
+ * Create the side-loaded subtitle track for [info]. The subtitle is downloaded in the background so
+ * it is available without loading it from the server next time.
+ */
+fun PlaybackController.createExternalSubtitle(
+	item: BaseItemDto,
+	info: SubtitleStreamInfo,
+): SubtitleConfiguration? {
+	if (!info.isSideLoadable) return null
+
+	val externalSubtitleCache by fragment.inject<ExternalSubtitleCache>()
+	val file = externalSubtitleCache.getCachedSubtitle(item.id, info)
+	if (file == null) externalSubtitleCache.getSubtitle(item.id, info)
+
+	val uri = if (file != null) Uri.fromFile(file) else Uri.parse(info.url)
+	return info.toSubtitleConfiguration(uri)
+}
+
+// Only subtitles served by the server can be side-loaded, the url might be a path on the server otherwise
+private val SubtitleStreamInfo.isSideLoadable
+	get() = deliveryMethod == SubtitleDeliveryMethod.External &&
+		format.toSubtitleMimeType() != null &&
+		url?.let { url -> url.startsWith("http://", ignoreCase = true) || url.startsWith("https://", ignoreCase = true) } == true
+
+private fun SubtitleStreamInfo.toSubtitleConfiguration(uri: Uri) = SubtitleConfiguration.Builder(uri)
+	.setId(getExternalSubtitleTrackId(index))
+	.setMimeType(format.toSubtitleMimeType())
+	.setLabel(displayTitle)
+	.build()
+
+fun getExternalSubtitleTrackId(index: Int) = "external:$index"
+
+private fun String?.toSubtitleMimeType() = when (this?.lowercase()) {
+	"srt", "subrip" -> MimeTypes.APPLICATION_SUBRIP
+	"vtt", "webvtt" -> MimeTypes.TEXT_VTT
+	"ass", "ssa" -> MimeTypes.TEXT_SSA
+	else -> null
+}
+
 @OptIn(UnstableApi::class)
 private fun PlaybackController.addSkipAction(mediaSegment: MediaSegmentDto) {
 	mVideoManager.mExoPlayer
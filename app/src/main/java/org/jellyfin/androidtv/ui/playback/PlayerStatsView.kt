@@ -0,0 +1,90 @@
+package org.jellyfin.androidtv.ui.playback
+
+import android.content.Context
+import android.graphics.Color
+import android.graphics.Typeface
+import android.text.format.Formatter
+import android.util.AttributeSet
+import android.util.TypedValue
+import android.view.Gravity
+import android.widget.FrameLayout
+import androidx.appcompat.widget.AppCompatTextView
+import org.jellyfin.playback.core.stats.PlayerDecoderInfo
+import org.jellyfin.playback.core.stats.PlayerStats
+import java.util.Locale
+
+/**
+ * Overlay showing the [PlayerStats] of the current player, refreshed every second while attached.
+ */
+class PlayerStatsView @JvmOverloads constructor(
+	context: Context,
+	attrs: AttributeSet? = null,
+) : AppCompatTextView(context, attrs) {
+	companion object {
+		private const val UPDATE_INTERVAL_MS = 1000L
+	}
+
+	fun interface StatsProvider {
+		fun getStats(): PlayerStats?
+	}
+
+	var statsProvider: StatsProvider? = null
+
+	private val updateRunnable = object : Runnable {
+		override fun run() {
+			update()
+			postDelayed(this, UPDATE_INTERVAL_MS)
+		}
+	}
+
+	init {
+		val padding = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 8f, resources.displayMetrics).toInt()
+		setPadding(padding, padding, padding, padding)
+		setTextColor(Color.WHITE)
+		setBackgroundColor(Color.argb(0xAA, 0, 0, 0))
+		setTextSize(TypedValue.COMPLEX_UNIT_SP, 12f)
+		typeface = Typeface.MONOSPACE
+		isFocusable = false
+
+		layoutParams = FrameLayout.LayoutParams(
+			FrameLayout.LayoutParams.WRAP_CONTENT,
+			FrameLayout.LayoutParams.WRAP_CONTENT,
+			Gravity.TOP or Gravity.START,
+		).apply {
+			setMargins(padding * 2, padding * 2, padding * 2, padding * 2)
+		}
+	}
+
+	override fun onAttachedToWindow() {
+		super.onAttachedToWindow()
+		post(updateRunnable)
+	}
+
+	override fun onDetachedFromWindow() {
+		super.onDetachedFromWindow()
+		removeCallbacks(updateRunnable)
+	}
+
+	private fun update() {
+		val stats = statsProvider?.getStats() ?: PlayerStats.EMPTY
+
+		// Not translated, these values are only meaningful to support staff
+		text = buildString {
+			appendLine("Video: ${stats.videoFormat ?: "-"}")
+			appendLine("Video decoder: ${stats.videoDecoder.format()}")
+			appendLine("Audio: ${stats.audioFormat ?: "-"}")
+			appendLine("Audio decoder: ${stats.audioDecoder.format()}")
+			appendLine("Dropped frames: ${stats.droppedFrames}")
+			appendLine("Buffer health: ${String.format(Locale.ROOT, "%.1f", stats.bufferHealth.inWholeMilliseconds / 1000.0)}s")
+			appendLine("Bandwidth: ${stats.bandwidthEstimate?.let { Formatter.formatShortFileSize(context, it / 8) + "/s" } ?: "-"}")
+			append("Rebuffers: ${stats.rebuffers}")
+		}
+	}
+
+	private fun PlayerDecoderInfo?.format() = when {
+		this == null -> "-"
+		hardwareAccelerated == true -> "$name (hardware)"
+		hardwareAccelerated == false -> "$name (software)"
+		else -> name
+	}
+}
@@ -33,6 +33,7 @@ import androidx.media3.exoplayer.DefaultRenderersFactory;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
 import androidx.media3.exoplayer.util.EventLogger;
 import androidx.media3.extractor.DefaultExtractorsFactory;
 import androidx.media3.extractor.ts.TsExtractor;
@@ -42,9 +43,16 @@ import androidx.media3.ui.PlayerView;
 
 import org.jellyfin.androidtv.R;
 import org.jellyfin.androidtv.preference.UserPreferences;
+import org.jellyfin.androidtv.preference.constant.PlaybackBufferProfile;
+import org.jellyfin.androidtv.preference.constant.PlaybackBufferProfileKt;
+import org.jellyfin.playback.core.stats.PlayerStats;
+import org.jellyfin.playback.media3.exoplayer.ExoPlayerBufferOptionsKt;
+import org.jellyfin.playback.media3.exoplayer.stats.ExoPlayerStatsCollector;
 import org.jellyfin.sdk.model.api.MediaStream;
 import org.koin.java.KoinJavaComponent;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,12 +77,15 @@ public class VideoManager {
     private Handler mHandler = new Handler();
 
     private long mMetaDuration = -1;
+    private List<MediaItem.SubtitleConfiguration> mSubtitleConfigurations = new ArrayList<>();
+    private int mPendingExternalSubtitleIndex = -1;
     private long lastExoPlayerPosition = -1;
     private boolean nightModeEnabled;
 
     public boolean isContracted = false;
 
     private final UserPreferences userPreferences = KoinJavaComponent.get(UserPreferences.class);
+    private final ExoPlayerStatsCollector mStatsCollector;
 
     public VideoManager(@NonNull Activity activity, @NonNull View view, @NonNull PlaybackOverlayFragmentHelper helper) {
         mActivity = activity;
@@ -87,6 +98,9 @@ public class VideoManager {
             mExoPlayer.addAnalyticsListener(new EventLogger());
         }
 
+        mStatsCollector = new ExoPlayerStatsCollector(DefaultBandwidthMeter.getSingletonInstance(activity));
+        mExoPlayer.addAnalyticsListener(mStatsCollector);
+
         // Volume normalisation (audio night mode).
         if (nightModeEnabled) enableAudioNightMode(mExoPlayer.getAudioSessionId());
 
@@ -158,6 +172,11 @@ public class VideoManager {
             @Override
             public void onTracksChanged(Tracks tracks) {
                 Timber.d("Tracks changed");
+
+                // select a subtitle that was added while playing once its track is available
+                if (mPendingExternalSubtitleIndex >= 0 && setExternalSubtitleTrack(mPendingExternalSubtitleIndex)) {
+                    mPendingExternalSubtitleIndex = -1;
+                }
             }
         });
     }
@@ -188,6 +207,9 @@ public class VideoManager {
         defaultRendererFactory.setExtensionRendererMode(determineExoPlayerExtensionRendererMode());
         exoPlayerBuilder.setRenderersFactory(defaultRendererFactory);
 
+        PlaybackBufferProfile bufferProfile = userPreferences.get(UserPreferences.Companion.getPlaybackBufferProfile());
+        exoPlayerBuilder.setLoadControl(ExoPlayerBufferOptionsKt.createLoadControl(PlaybackBufferProfileKt.toBufferOptions(bufferProfile, context)));
+
         DefaultTrackSelector trackSelector = new DefaultTrackSelector(context);
         trackSelector.setParameters(trackSelector.buildUponParameters()
                 .setAudioOffloadPreferences(new TrackSelectionParameters.AudioOffloadPreferences.Builder()
@@ -264,6 +286,14 @@ public class VideoManager {
         }
     }
 
+    @Nullable
+    public PlayerStats getStats() {
+        if (!isInitialized())
+            return null;
+
+        return mStatsCollector.getStats(mExoPlayer);
+    }
+
     public boolean isPlaying() {
         return mExoPlayer.isPlaying();
     }
@@ -319,14 +349,24 @@ public class VideoManager {
     }
 
     public void setVideoPath(@Nullable String path) {
+        setVideoPath(path, Collections.emptyList());
+    }
+
+    public void setVideoPath(@Nullable String path, @NonNull List<MediaItem.SubtitleConfiguration> subtitles) {
         if (path == null) {
             Timber.w("Video path is null cannot continue");
             return;
         }
-        Timber.i("Video path set to: %s", path);
+        Timber.i("Video path set to: %s with %d side-loaded subtitles", path, subtitles.size());
+
+        mSubtitleConfigurations = new ArrayList<>(subtitles);
+        mPendingExternalSubtitleIndex = -1;
 
         try {
-            mExoPlayer.setMediaItem(MediaItem.fromUri(Uri.parse(path)));
+            mExoPlayer.setMediaItem(new MediaItem.Builder()
+                    .setUri(Uri.parse(path))
+                    .setSubtitleConfigurations(subtitles)
+                    .build());
             mExoPlayer.prepare();
         } catch (IllegalStateException e) {
             Timber.e(e, "Unable to set video path.  Probably backing out.");
@@ -477,6 +517,7 @@ public class VideoManager {
 
         try {
             TrackSelectionParameters.Builder mExoPlayerSelectionParams = mExoPlayer.getTrackSelectionParameters().buildUpon();
+            mExoPlayerSelectionParams.setTrackTypeDisabled(chosenTrackType, false);
             mExoPlayerSelectionParams.setOverrideForType(new TrackSelectionOverride(matchedGroup, 0));
             mExoPlayer.setTrackSelectionParameters(mExoPlayerSelectionParams.build());
         } catch (Exception e) {
@@ -486,6 +527,77 @@ public class VideoManager {
         return true;
     }
 
+    public boolean setExternalSubtitleTrack(int index) {
+        if (!isInitialized())
+            return false;
+
+        // side-loaded subtitles are identified by their id instead of the container track number
+        String trackId = PlaybackControllerHelperKt.getExternalSubtitleTrackId(index);
+        for (Tracks.Group groupInfo : mExoPlayer.getCurrentTracks().getGroups()) {
+            if (groupInfo.getType() != C.TRACK_TYPE_TEXT)
+                continue;
+
+            TrackGroup group = groupInfo.getMediaTrackGroup();
+            for (int i = 0; i < group.length; i++) {
+                if (!trackId.equals(group.getFormat(i).id))
+                    continue;
+
+                if (!groupInfo.isTrackSupported(i)) {
+                    Timber.d("side-loaded subtitle track %s is not supported", trackId);
+                    return false;
+                }
+
+                mExoPlayer.setTrackSelectionParameters(mExoPlayer.getTrackSelectionParameters()
+                        .buildUpon()
+                        .setTrackTypeDisabled(C.TRACK_TYPE_TEXT, false)
+                        .setOverrideForType(new TrackSelectionOverride(group, i))
+                        .build());
+                return true;
+            }
+        }
+
+        Timber.d("side-loaded subtitle track %s not found", trackId);
+        return false;
+    }
+
+    public boolean addExternalSubtitleTrack(@NonNull MediaItem.SubtitleConfiguration subtitle, int index) {
+        if (!isInitialized() || mExoPlayer.getCurrentMediaItem() == null)
+            return false;
+
+        for (MediaItem.SubtitleConfiguration configuration : mSubtitleConfigurations) {
+            if (configuration.id != null && configuration.id.equals(subtitle.id))
+                return false;
+        }
+
+        // side-loaded subtitles can only be added by replacing the media item, continue at the current position
+        mSubtitleConfigurations.add(subtitle);
+        mPendingExternalSubtitleIndex = index;
+        try {
+            MediaItem item = mExoPlayer.getCurrentMediaItem()
+                    .buildUpon()
+                    .setSubtitleConfigurations(mSubtitleConfigurations)
+                    .build();
+            mExoPlayer.setMediaItem(item, mExoPlayer.getCurrentPosition());
+            mExoPlayer.prepare();
+        } catch (IllegalStateException e) {
+            Timber.e(e, "Unable to add side-loaded subtitle track");
+            mPendingExternalSubtitleIndex = -1;
+            return false;
+        }
+        return true;
+    }
+
+    public void disableSubtitleTracks() {
+        if (!isInitialized())
+            return;
+
+        mExoPlayer.setTrackSelectionParameters(mExoPlayer.getTrackSelectionParameters()
+                .buildUpon()
+                .clearOverridesOfType(C.TRACK_TYPE_TEXT)
+                .setTrackTypeDisabled(C.TRACK_TYPE_TEXT, true)
+                .build());
+    }
+
     public float getPlaybackSpeed(){
         if (!isInitialized()) {
             return 1.0f;
@@ -6,16 +6,31 @@ import kotlin.math.min
 
 class CustomSeekProvider(
 	private val videoPlayerAdapter: VideoPlayerAdapter,
+	private val trickplay: TrickplayThumbnails? = null,
 ) : PlaybackSeekDataProvider() {
 	companion object {
 		private const val SEEK_LENGTH = 10000L
 	}
 
+	// Follow the thumbnail interval so each seek position has its own thumbnail
+	private val seekLength get() = trickplay?.interval?.takeIf { it > 0 } ?: SEEK_LENGTH
+
 	override fun getSeekPositions(): LongArray {
 		if (!videoPlayerAdapter.canSeek()) return LongArray(0)
 
 		val duration = videoPlayerAdapter.duration
-		val size = ceil(duration.toDouble() / SEEK_LENGTH.toDouble()).toInt() + 1
-		return LongArray(size) { i -> min(i * SEEK_LENGTH, duration) }
+		val seekLength = seekLength
+		val size = ceil(duration.toDouble() / seekLength.toDouble()).toInt() + 1
+		return LongArray(size) { i -> min(i * seekLength, duration) }
+	}
+
+	override fun getThumbnail(index: Int, callback: ResultCallback) {
+		val trickplay = trickplay ?: return
+		val position = min(index * seekLength, videoPlayerAdapter.duration)
+		trickplay.getThumbnail(position) { bitmap -> callback.onThumbnailLoaded(bitmap, index) }
+	}
+
+	override fun reset() {
+		trickplay?.cancelRequests()
 	}
 }
@@ -76,7 +76,16 @@ public class LeanbackOverlayFragment extends PlaybackSupportFragment {
 
         playerGlue.invalidatePlaybackControls();
         playerGlue.setSeekEnabled(playerAdapter.canSeek());
-        playerGlue.setSeekProvider(playerAdapter.canSeek() ? new CustomSeekProvider(playerAdapter) : null);
+        playerGlue.setSeekProvider(playerAdapter.canSeek() ? new CustomSeekProvider(playerAdapter, null) : null);
+        if (playerAdapter.canSeek()) {
+            org.jellyfin.sdk.model.api.MediaSourceInfo mediaSource = playbackControllerContainer.getValue().getPlaybackController().getCurrentMediaSource();
+            TrickplayHelperKt.loadTrickplayThumbnails(this, currentlyPlayingItem, mediaSource != null ? mediaSource.getId() : null, thumbnails -> {
+                // Ignore thumbnails for an item that is no longer playing
+                if (currentlyPlayingItem != playbackControllerContainer.getValue().getPlaybackController().getCurrentlyPlayingItem()) return null;
+                playerGlue.setSeekProvider(new CustomSeekProvider(playerAdapter, thumbnails));
+                return null;
+            });
+        }
         recordingStateChanged();
         playerAdapter.updateDuration();
     }
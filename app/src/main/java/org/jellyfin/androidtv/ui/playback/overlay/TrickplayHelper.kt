@@ -0,0 +1,51 @@
+package org.jellyfin.androidtv.ui.playback.overlay
+
+import androidx.lifecycle.lifecycleScope
+import coil.ImageLoader
+import kotlinx.coroutines.launch
+import org.jellyfin.sdk.api.client.ApiClient
+import org.jellyfin.sdk.api.client.extensions.userLibraryApi
+import org.jellyfin.sdk.model.api.BaseItemDto
+import org.koin.android.ext.android.inject
+import timber.log.Timber
+
+/**
+ * Load the trickplay manifest for [item] and call [callback] with the thumbnails when the server has
+ * trickplay images for the media source.
+ */
+fun LeanbackOverlayFragment.loadTrickplayThumbnails(
+	item: BaseItemDto,
+	mediaSourceId: String?,
+	callback: (thumbnails: TrickplayThumbnails) -> Unit,
+) {
+	val api by inject<ApiClient>()
+	val imageLoader by inject<ImageLoader>()
+	val tileCache by inject<TrickplayTileCache>()
+
+	lifecycleScope.launch {
+		// Items in the play queue are often requested without the trickplay field
+		val trickplay = item.trickplay ?: runCatching {
+			api.userLibraryApi.getItem(itemId = item.id).content.trickplay
+		}.onFailure { err ->
+			Timber.w(err, "Failed to load trickplay manifest for item ${item.id}")
+		}.getOrNull()
+
+		val sourceId = mediaSourceId ?: item.id.toString().replace("-", "")
+		// Use the smallest resolution, the thumbnails are shown at a small size
+		val info = trickplay?.get(sourceId)?.values?.minByOrNull { it.width } ?: return@launch
+		if (info.interval <= 0 || info.thumbnailCount <= 0) return@launch
+
+		callback(
+			TrickplayThumbnails(
+				context = requireContext(),
+				api = api,
+				imageLoader = imageLoader,
+				tileCache = tileCache,
+				scope = lifecycleScope,
+				itemId = item.id,
+				mediaSourceId = mediaSourceId,
+				info = info,
+			)
+		)
+	}
+}
@@ -0,0 +1,145 @@
+package org.jellyfin.androidtv.ui.playback.overlay
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Rect
+import android.graphics.drawable.BitmapDrawable
+import android.net.Uri
+import android.util.LruCache
+import coil.ImageLoader
+import coil.request.CachePolicy
+import coil.request.ImageRequest
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.plus
+import org.jellyfin.sdk.api.client.ApiClient
+import org.jellyfin.sdk.api.client.extensions.trickplayApi
+import org.jellyfin.sdk.model.api.TrickplayInfo
+import timber.log.Timber
+import java.util.UUID
+
+/**
+ * Seek thumbnails sliced from the trickplay tile sheets of the server. Tiles are loaded on demand
+ * and the tiles next to the requested one are prefetched. All functions must be called on the main
+ * thread.
+ */
+class TrickplayThumbnails(
+	private val context: Context,
+	private val api: ApiClient,
+	private val imageLoader: ImageLoader,
+	private val tileCache: TrickplayTileCache,
+	private val scope: CoroutineScope,
+	private val itemId: UUID,
+	private val mediaSourceId: String?,
+	private val info: TrickplayInfo,
+) {
+	companion object {
+		// Enough to hold all thumbnails visible in the seek bar
+		private const val FRAME_CACHE_SIZE = 32
+		private const val PREFETCH_TILES = 1
+	}
+
+	val interval: Long get() = info.interval.toLong()
+
+	private val framesPerTile = info.tileWidth * info.tileHeight
+	private val tileCount = (info.thumbnailCount + framesPerTile - 1) / framesPerTile
+	private val pendingTiles = mutableMapOf<Int, Deferred<Bitmap?>>()
+
+	// Thumbnail requests are cancelled when the seek bar resets, tile loads are kept
+	private val requestScope = scope + Job(scope.coroutineContext.job)
+
+	// Frames are drawn into bitmaps reused from evicted frames to avoid allocations while scrubbing
+	private val recycledFrames = ArrayDeque<Bitmap>()
+	private val frames = object : LruCache<Int, Bitmap>(FRAME_CACHE_SIZE) {
+		override fun entryRemoved(evicted: Boolean, key: Int, oldValue: Bitmap, newValue: Bitmap?) {
+			if (evicted) recycledFrames.addLast(oldValue)
+		}
+	}
+	private val canvas = Canvas()
+	private val sourceRect = Rect()
+	private val frameRect = Rect(0, 0, info.width, info.height)
+
+	fun getThumbnail(position: Long, callback: (bitmap: Bitmap) -> Unit) {
+		val frameIndex = (position / interval).toInt().coerceIn(0, info.thumbnailCount - 1)
+		val tileIndex = frameIndex / framesPerTile
+		prefetchTiles(tileIndex)
+
+		frames.get(frameIndex)?.let { frame ->
+			callback(frame)
+			return
+		}
+
+		requestScope.launch {
+			val tile = getTile(tileIndex) ?: return@launch
+			callback(getFrame(tile, frameIndex))
+		}
+	}
+
+	fun cancelRequests() {
+		requestScope.coroutineContext.job.cancelChildren()
+	}
+
+	private fun prefetchTiles(tileIndex: Int) {
+		val start = (tileIndex - PREFETCH_TILES).coerceAtLeast(0)
+		val end = (tileIndex + PREFETCH_TILES).coerceAtMost(tileCount - 1)
+		for (index in start..end) {
+			if (tileCache[getTileKey(index)] == null && index !in pendingTiles) loadTileAsync(index)
+		}
+	}
+
+	private fun getTileKey(index: Int) = TrickplayTileCache.Key(itemId, mediaSourceId, info.width, index)
+
+	private suspend fun getTile(index: Int): Bitmap? =
+		tileCache[getTileKey(index)] ?: (pendingTiles[index] ?: loadTileAsync(index)).await()
+
+	private fun loadTileAsync(index: Int) = scope.async {
+		try {
+			loadTile(index)?.also { tile -> tileCache[getTileKey(index)] = tile }
+		} finally {
+			pendingTiles.remove(index)
+		}
+	}.also { pendingTiles[index] = it }
+
+	private suspend fun loadTile(index: Int): Bitmap? {
+		val url = Uri.parse(api.trickplayApi.getTrickplayTileImageUrl(itemId, info.width, index, mediaSourceId))
+			.buildUpon()
+			.appendQueryParameter("ApiKey", api.accessToken.orEmpty())
+			.build()
+
+		val request = ImageRequest.Builder(context)
+			.data(url.toString())
+			// Tiles are large, use half the memory and keep them out of the shared image cache
+			.bitmapConfig(Bitmap.Config.RGB_565)
+			.allowHardware(false)
+			.memoryCachePolicy(CachePolicy.DISABLED)
+			.build()
+
+		val drawable = imageLoader.execute(request).drawable
+		if (drawable !is BitmapDrawable) Timber.w("Failed to load trickplay tile $index for item $itemId")
+		return (drawable as? BitmapDrawable)?.bitmap
+	}
+
+	private fun getFrame(tile: Bitmap, frameIndex: Int): Bitmap {
+		frames.get(frameIndex)?.let { return it }
+
+		val frameInTile = frameIndex % framesPerTile
+		val x = (frameInTile % info.tileWidth) * info.width
+		val y = (frameInTile / info.tileWidth) * info.height
+		sourceRect.set(x, y, x + info.width, y + info.height)
+
+		val frame = recycledFrames.removeFirstOrNull()
+			?: Bitmap.createBitmap(info.width, info.height, Bitmap.Config.RGB_565)
+		canvas.setBitmap(frame)
+		canvas.drawBitmap(tile, sourceRect, frameRect, null)
+		canvas.setBitmap(null)
+
+		frames.put(frameIndex, frame)
+		return frame
+	}
+}
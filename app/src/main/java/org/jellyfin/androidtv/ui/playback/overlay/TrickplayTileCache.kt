@@ -0,0 +1,29 @@
+package org.jellyfin.androidtv.ui.playback.overlay
+
+import android.graphics.Bitmap
+import android.util.LruCache
+import java.util.UUID
+
+/**
+ * Size bounded cache of decoded trickplay tile sheets, shared between playback sessions.
+ */
+class TrickplayTileCache(
+	maxBytes: Int = (Runtime.getRuntime().maxMemory() / 8).toInt(),
+) {
+	data class Key(
+		val itemId: UUID,
+		val mediaSourceId: String?,
+		val width: Int,
+		val index: Int,
+	)
+
+	private val tiles = object : LruCache<Key, Bitmap>(maxBytes) {
+		override fun sizeOf(key: Key, value: Bitmap) = value.allocationByteCount
+	}
+
+	operator fun get(key: Key): Bitmap? = tiles.get(key)
+
+	operator fun set(key: Key, bitmap: Bitmap) {
+		tiles.put(key, bitmap)
+	}
+}
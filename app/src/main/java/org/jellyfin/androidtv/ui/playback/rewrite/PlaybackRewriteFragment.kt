@@ -12,7 +12,9 @@ import androidx.lifecycle.repeatOnLifecycle
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.launch
+import org.jellyfin.androidtv.preference.UserPreferences
 import org.jellyfin.androidtv.ui.ScreensaverViewModel
+import org.jellyfin.androidtv.ui.playback.PlayerStatsView
 import org.jellyfin.androidtv.ui.playback.VideoQueueManager
 import org.jellyfin.playback.core.PlaybackManager
 import org.jellyfin.playback.core.model.PlayState
@@ -36,6 +38,7 @@ class PlaybackRewriteFragment : Fragment() {
 	private val videoQueueManager by inject<VideoQueueManager>()
 	private val playbackManager by inject<PlaybackManager>()
 	private val api by inject<ApiClient>()
+	private val userPreferences by inject<UserPreferences>()
 
 	private val screensaverViewModel by activityViewModel<ScreensaverViewModel>()
 	private var screensaverLock: (() -> Unit)? = null
@@ -86,6 +89,12 @@ class PlaybackRewriteFragment : Fragment() {
 			addView(PlayerSubtitleView(requireContext()).also { view ->
 				view.playbackManager = playbackManager
 			})
+
+			if (userPreferences[UserPreferences.playbackStatsOverlayEnabled]) {
+				addView(PlayerStatsView(requireContext()).also { view ->
+					view.statsProvider = PlayerStatsView.StatsProvider { playbackManager.state.stats }
+				})
+			}
 		}
 	}
 
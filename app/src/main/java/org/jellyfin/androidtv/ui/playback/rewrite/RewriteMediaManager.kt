@@ -3,13 +3,18 @@ package org.jellyfin.androidtv.ui.playback.rewrite
 import android.content.Context
 import androidx.lifecycle.ProcessLifecycleOwner
 import androidx.lifecycle.lifecycleScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.coroutineScope
-import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
 import org.jellyfin.androidtv.constant.QueryType
 import org.jellyfin.androidtv.ui.itemhandling.AudioQueueBaseRowItem
 import org.jellyfin.androidtv.ui.itemhandling.ItemRowAdapter
@@ -32,7 +37,13 @@ import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.model.api.BaseItemDto
 import org.jellyfin.sdk.model.api.MediaType
 import kotlin.math.max
+import kotlin.math.min
+import kotlin.time.Duration.Companion.milliseconds
 
+/**
+ * [MediaManager] for the playback rewrite. Queue operations are applied asynchronously, derived
+ * state is kept in [StateFlow]s so the getters never block the calling thread.
+ */
 @Suppress("TooManyFunctions")
 class RewriteMediaManager(
 	context: Context,
@@ -41,6 +52,30 @@ class RewriteMediaManager(
 	private val playbackManager: PlaybackManager,
 ) : MediaManager {
 	private val queueSupplier = BaseItemQueueSupplier(api)
+	private val scope get() = ProcessLifecycleOwner.get().lifecycleScope
+
+	@OptIn(ExperimentalCoroutinesApi::class)
+	private val hasNextAudioItemState: StateFlow<Boolean> by lazy {
+		combine(playbackManager.queue.snapshot, playbackManager.state.playbackOrder) { _, _ -> }
+			.mapLatest { playbackManager.queue.peekNext() != null }
+			.stateIn(scope, SharingStarted.Eagerly, false)
+	}
+
+	private val hasPrevAudioItemState: StateFlow<Boolean> by lazy {
+		playbackManager.queue.snapshot
+			.map { snapshot -> snapshot.entryIndex > 0 }
+			.stateIn(scope, SharingStarted.Eagerly, false)
+	}
+
+	private val queueSizeState: StateFlow<Int> by lazy {
+		playbackManager.queue.snapshot
+			.map { snapshot -> snapshot.estimatedSize }
+			.stateIn(scope, SharingStarted.Eagerly, 0)
+	}
+
+	// Index in the supplier items of the first item in the adapter, earlier items are not shown
+	private var adapterOffset = 0
+	private var playingItem: AudioQueueBaseRowItem? = null
 
 	override fun hasAudioQueueItems(): Boolean = currentAudioQueue.size() > 0 && currentAudioItem != null
 
@@ -57,7 +92,7 @@ class RewriteMediaManager(
 		get() = (currentAudioQueuePosition + 1).toString()
 
 	override val currentAudioQueueDisplaySize: String
-		get() = playbackManager.queue.estimatedSize.toString()
+		get() = queueSizeState.value.toString()
 
 	override val currentAudioItem: BaseItemDto?
 		get() = playbackManager.queue.entry.value?.baseItem
@@ -104,10 +139,9 @@ class RewriteMediaManager(
 
 	private suspend fun watchPlaybackStateChanges() = coroutineScope {
 		playbackManager.state.playState.onEach { playState ->
-			notifyListeners {
-				val firstItem = currentAudioQueue.get(0) as? AudioQueueBaseRowItem
-				firstItem?.playing = playState == PlayState.PLAYING
+			updatePlayingItem()
 
+			notifyListeners {
 				onPlaybackStateChange(
 					when (playState) {
 						PlayState.STOPPED -> PlaybackController.PlaybackState.IDLE
@@ -119,14 +153,11 @@ class RewriteMediaManager(
 			}
 		}.launchIn(this)
 
-		launch {
-			while (true) {
-				notifyListeners {
-					onProgress(playbackManager.state.positionInfo.active.inWholeMilliseconds)
-				}
-				delay(@Suppress("MagicNumber") 100)
+		playbackManager.state.positionInfoTicker(@Suppress("MagicNumber") 100.milliseconds).onEach { positionInfo ->
+			notifyListeners {
+				onProgress(positionInfo.active.inWholeMilliseconds)
 			}
-		}
+		}.launchIn(this)
 
 		playbackManager.queue.entry.onEach { entry ->
 			val baseItem = entry?.baseItem
@@ -135,33 +166,66 @@ class RewriteMediaManager(
 			}
 		}.launchIn(this)
 
-		playbackManager.queue.entry.onEach { updateAdapter() }.launchIn(this)
+		playbackManager.queue.entryIndex.onEach { entryIndex -> moveAdapter(entryIndex) }.launchIn(this)
+
+		combine(hasNextAudioItemState, hasPrevAudioItemState) { _, _ -> }
+			.onEach { notifyListeners { onQueueStatusChanged(hasAudioQueueItems()) } }
+			.launchIn(this)
 	}
 
-	private fun updateAdapter() {
-		// Get all items as BaseRowItem
-		val items = queueSupplier
-			.items
-			// Map to audio queue items
-			.mapIndexed { index, item ->
-				AudioQueueBaseRowItem(item).apply {
-					playing = playbackManager.queue.entryIndex.value == index
-				}
-			}
-			// Remove items before currently playing item
-			.drop(max(0, playbackManager.queue.entryIndex.value))
+	/**
+	 * Move the start of the adapter to [entryIndex] by removing played items or inserting previous
+	 * items, instead of recreating all items.
+	 */
+	private fun moveAdapter(entryIndex: Int) {
+		val offset = max(0, entryIndex)
+		val distance = offset - adapterOffset
+
+		when {
+			distance > 0 -> currentAudioQueue.removeAt(0, min(distance, currentAudioQueue.size()))
+			distance < 0 -> currentAudioQueue.addAll(0, createRowItems(offset, adapterOffset))
+		}
 
-		// Update item row
-		currentAudioQueue.replaceAll(
-			items,
-			areItemsTheSame = { old, new -> (old as? AudioQueueBaseRowItem)?.baseItem == (new as? AudioQueueBaseRowItem)?.baseItem },
-			// The equals functions for BaseRowItem only compare by id
-			areContentsTheSame = { _, _ -> false },
-		)
+		adapterOffset = offset
+		updatePlayingItem()
+		if (distance != 0) notifyListeners { onQueueReplaced() }
+	}
+
+	// The queue is restarted from the first item, changes to it are applied asynchronously
+	private fun resetAdapter() {
+		playingItem = null
+		adapterOffset = 0
+		currentAudioQueue.clear()
+		currentAudioQueue.addAll(0, createRowItems(adapterOffset, queueSupplier.items.size))
+		updatePlayingItem()
 
 		notifyListeners { onQueueReplaced() }
 	}
 
+	private fun createRowItems(fromIndex: Int, toIndex: Int) = queueSupplier.items
+		.subList(min(fromIndex, queueSupplier.items.size), min(toIndex, queueSupplier.items.size))
+		.map(::AudioQueueBaseRowItem)
+
+	private fun updatePlayingItem() {
+		val firstItem = currentAudioQueue.get(0) as? AudioQueueBaseRowItem
+
+		// Only the first item can be playing, clear the flag of the previously playing item
+		val previousItem = playingItem
+		if (previousItem != null && previousItem !== firstItem) {
+			previousItem.playing = false
+			val index = currentAudioQueue.indexOf(previousItem)
+			if (index != -1) currentAudioQueue.set(index, previousItem)
+		}
+
+		val playing = playbackManager.state.playState.value == PlayState.PLAYING
+		if (firstItem != null && (firstItem !== previousItem || firstItem.playing != playing)) {
+			firstItem.playing = playing
+			currentAudioQueue.set(0, firstItem)
+		}
+
+		playingItem = firstItem
+	}
+
 	private fun notifyListeners(body: AudioEventListener.() -> Unit) {
 		for (audioListener in audioListeners) {
 			audioListener.body()
@@ -200,9 +264,14 @@ class RewriteMediaManager(
 			playbackManager.queue.clear()
 			playbackManager.queue.addSupplier(queueSupplier)
 			playbackManager.state.play()
+			resetAdapter()
+		} else {
+			val position = addIndex - adapterOffset
+			if (position in 0..currentAudioQueue.size()) {
+				currentAudioQueue.addAll(position, items.map(::AudioQueueBaseRowItem))
+				notifyListeners { onQueueReplaced() }
+			}
 		}
-
-		updateAdapter()
 	}
 
 	override fun removeFromAudioQueue(item: BaseItemDto) {
@@ -213,7 +282,13 @@ class RewriteMediaManager(
 		if (playbackManager.queue.entryIndex.value == index) return
 
 		queueSupplier.items.removeAt(index)
-		updateAdapter()
+
+		if (index < adapterOffset) {
+			adapterOffset--
+		} else {
+			currentAudioQueue.removeAt(index - adapterOffset)
+			notifyListeners { onQueueReplaced() }
+		}
 	}
 
 	override val isPlayingAudio: Boolean
@@ -227,6 +302,7 @@ class RewriteMediaManager(
 		playbackManager.queue.clear()
 		playbackManager.queue.addSupplier(queueSupplier)
 		playbackManager.state.play()
+		resetAdapter()
 
 		navigationRepository.navigate(Destinations.nowPlaying)
 	}
@@ -234,9 +310,9 @@ class RewriteMediaManager(
 	override fun playFrom(item: BaseItemDto): Boolean {
 		val index = queueSupplier.items.indexOf(item)
 		if (index == -1) return false
-		return runBlocking {
-			playbackManager.queue.setIndex(index) != null
-		}
+
+		scope.launch { playbackManager.queue.setIndex(index) }
+		return true
 	}
 
 	override fun shuffleAudioQueue() {
@@ -248,22 +324,25 @@ class RewriteMediaManager(
 		playbackManager.state.setPlaybackOrder(newMode)
 	}
 
-	override fun hasNextAudioItem(): Boolean = runBlocking {
-		playbackManager.queue.peekNext() != null
-	}
+	override fun hasNextAudioItem(): Boolean = hasNextAudioItemState.value
 
-	override fun hasPrevAudioItem(): Boolean = playbackManager.queue.entryIndex.value > 0
+	override fun hasPrevAudioItem(): Boolean = hasPrevAudioItemState.value
 
+	// The returned index is the current index, listeners are notified when the change is applied
 	override fun nextAudioItem(): Int {
-		runBlocking { playbackManager.queue.next() }
-		notifyListeners { onQueueStatusChanged(hasAudioQueueItems()) }
+		scope.launch {
+			playbackManager.queue.next()
+			notifyListeners { onQueueStatusChanged(hasAudioQueueItems()) }
+		}
 
 		return playbackManager.queue.entryIndex.value
 	}
 
 	override fun prevAudioItem(): Int {
-		runBlocking { playbackManager.queue.previous() }
-		notifyListeners { onQueueStatusChanged(hasAudioQueueItems()) }
+		scope.launch {
+			playbackManager.queue.previous()
+			notifyListeners { onQueueStatusChanged(hasAudioQueueItems()) }
+		}
 
 		return playbackManager.queue.entryIndex.value
 	}
@@ -50,6 +50,13 @@ class DeveloperPreferencesScreen : OptionsFragment() {
 				}
 			}
 
+			checkbox {
+				setTitle(R.string.pref_playback_stats_overlay)
+				setContent(R.string.pref_playback_stats_overlay_content)
+
+				bind(userPreferences, UserPreferences.playbackStatsOverlayEnabled)
+			}
+
 			checkbox {
 				setTitle(R.string.prefer_exoplayer_ffmpeg)
 				setContent(R.string.prefer_exoplayer_ffmpeg_content)
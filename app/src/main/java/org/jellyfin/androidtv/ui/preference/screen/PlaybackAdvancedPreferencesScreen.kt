@@ -4,6 +4,7 @@ import android.os.Build
 import org.jellyfin.androidtv.R
 import org.jellyfin.androidtv.constant.getQualityProfiles
 import org.jellyfin.androidtv.preference.UserPreferences
+import org.jellyfin.androidtv.preference.constant.PlaybackBufferProfile
 import org.jellyfin.androidtv.preference.constant.RefreshRateSwitchingBehavior
 import org.jellyfin.androidtv.ui.preference.custom.DurationSeekBarPreference
 import org.jellyfin.androidtv.ui.preference.dsl.OptionsFragment
@@ -62,6 +63,11 @@ class PlaybackAdvancedPreferencesScreen : OptionsFragment() {
 				bind(userPreferences, UserPreferences.refreshRateSwitchingBehavior)
 			}
 
+			enum<PlaybackBufferProfile> {
+				setTitle(R.string.pref_buffer_profile)
+				bind(userPreferences, UserPreferences.playbackBufferProfile)
+			}
+
 			@Suppress("MagicNumber")
 			seekbar {
 				setTitle(R.string.video_start_delay)
@@ -36,6 +36,13 @@ open class MutableObjectAdapter<T : Any> : ObjectAdapter, Iterable<T> {
 		notifyItemRangeInserted(index, 1)
 	}
 
+	fun addAll(index: Int, elements: Collection<T>) {
+		if (elements.isEmpty()) return
+
+		data.addAll(index, elements)
+		notifyItemRangeInserted(index, elements.size)
+	}
+
 	fun set(index: Int, element: T) {
 		data.set(index, element)
 		notifyItemRangeChanged(index, 1)
@@ -221,6 +221,17 @@ class ExoPlayerProfile(
 				add(subtitleProfile(codec, SubtitleDeliveryMethod.Hls))
 			}
 
+			// Side-loaded by the player, avoids burning in external text subtitles
+			arrayOf(
+				Codec.Subtitle.SRT,
+				Codec.Subtitle.SUBRIP,
+				Codec.Subtitle.VTT,
+				Codec.Subtitle.ASS,
+				Codec.Subtitle.SSA,
+			).forEach { codec ->
+				add(subtitleProfile(codec, SubtitleDeliveryMethod.External))
+			}
+
 			// Require baking
 			arrayOf(
 				Codec.Subtitle.ASS,
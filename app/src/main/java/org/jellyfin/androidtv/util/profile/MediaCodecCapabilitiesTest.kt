@@ -5,9 +5,16 @@ import android.media.MediaCodecList
 import android.media.MediaFormat
 import android.os.Build
 import android.util.Size
+import org.jellyfin.playback.core.support.CapabilityCache
 import timber.log.Timber
 
-class MediaCodecCapabilitiesTest {
+/**
+ * Queries the decoders of the device. Results are stored in the optional [cache] so the codec list
+ * only needs to be scanned once per firmware and app version.
+ */
+class MediaCodecCapabilitiesTest(
+	private val cache: CapabilityCache? = null,
+) {
 	private val mediaCodecList by lazy { MediaCodecList(MediaCodecList.REGULAR_CODECS) }
 
 	// AVC levels as reported by ffprobe are multiplied by 10, e.g. level 4.1 is 41. Level 1b is set to 9
@@ -48,23 +55,29 @@ class MediaCodecCapabilitiesTest {
 		CodecProfileLevel.HEVCMainTierLevel62 to "186",
 	)
 
-	fun supportsAV1(): Boolean = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q &&
-		hasCodecForMime(MediaFormat.MIMETYPE_VIDEO_AV1)
+	fun supportsAV1(): Boolean = cached("av1") {
+		Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q &&
+			hasCodecForMime(MediaFormat.MIMETYPE_VIDEO_AV1)
+	}
 
-	fun supportsAV1Main10(): Boolean = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q &&
-		hasDecoder(
-			MediaFormat.MIMETYPE_VIDEO_AV1,
-			CodecProfileLevel.AV1ProfileMain10,
-			CodecProfileLevel.AV1Level5
-		)
+	fun supportsAV1Main10(): Boolean = cached("av1_main10") {
+		Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q &&
+			hasDecoder(
+				MediaFormat.MIMETYPE_VIDEO_AV1,
+				CodecProfileLevel.AV1ProfileMain10,
+				CodecProfileLevel.AV1Level5
+			)
+	}
 
-	fun supportsAVC(): Boolean = hasCodecForMime(MediaFormat.MIMETYPE_VIDEO_AVC)
+	fun supportsAVC(): Boolean = cached("avc") { hasCodecForMime(MediaFormat.MIMETYPE_VIDEO_AVC) }
 
-	fun supportsAVCHigh10(): Boolean = hasDecoder(
-		MediaFormat.MIMETYPE_VIDEO_AVC,
-		CodecProfileLevel.AVCProfileHigh10,
-		CodecProfileLevel.AVCLevel4
-	)
+	fun supportsAVCHigh10(): Boolean = cached("avc_high10") {
+		hasDecoder(
+			MediaFormat.MIMETYPE_VIDEO_AVC,
+			CodecProfileLevel.AVCProfileHigh10,
+			CodecProfileLevel.AVCLevel4
+		)
+	}
 
 	fun getAVCMainLevel(): String = getAVCLevelString(
 		CodecProfileLevel.AVCProfileMain
@@ -82,13 +95,15 @@ class MediaCodecCapabilitiesTest {
 		}?.second ?: "0"
 	}
 
-	fun supportsHevc(): Boolean = hasCodecForMime(MediaFormat.MIMETYPE_VIDEO_HEVC)
+	fun supportsHevc(): Boolean = cached("hevc") { hasCodecForMime(MediaFormat.MIMETYPE_VIDEO_HEVC) }
 
-	fun supportsHevcMain10(): Boolean = hasDecoder(
-		MediaFormat.MIMETYPE_VIDEO_HEVC,
-		CodecProfileLevel.HEVCProfileMain10,
-		CodecProfileLevel.HEVCMainTierLevel4
-	)
+	fun supportsHevcMain10(): Boolean = cached("hevc_main10") {
+		hasDecoder(
+			MediaFormat.MIMETYPE_VIDEO_HEVC,
+			CodecProfileLevel.HEVCProfileMain10,
+			CodecProfileLevel.HEVCMainTierLevel4
+		)
+	}
 
 	fun getHevcMainLevel(): String = getHevcLevelString(
 		CodecProfileLevel.HEVCProfileMain
@@ -106,7 +121,11 @@ class MediaCodecCapabilitiesTest {
 		}?.second ?: "0"
 	}
 
-	private fun getDecoderLevel(mime: String, profile: Int): Int {
+	private fun getDecoderLevel(mime: String, profile: Int): Int = cache
+		?.getOrPutInt("level_${mime}_$profile") { queryDecoderLevel(mime, profile) }
+		?: queryDecoderLevel(mime, profile)
+
+	private fun queryDecoderLevel(mime: String, profile: Int): Int {
 		var maxLevel = 0
 
 		for (info in mediaCodecList.codecInfos) {
@@ -167,7 +186,12 @@ class MediaCodecCapabilitiesTest {
 		return false
 	}
 
-	fun getMaxResolution(mime: String): Size {
+	fun getMaxResolution(mime: String): Size = when (cache) {
+		null -> queryMaxResolution(mime)
+		else -> Size.parseSize(cache.getOrPutString("max_resolution_$mime") { queryMaxResolution(mime).toString() })
+	}
+
+	private fun queryMaxResolution(mime: String): Size {
 		var maxWidth = 0
 		var maxHeight = 0
 
@@ -191,4 +215,6 @@ class MediaCodecCapabilitiesTest {
 		return Size(maxWidth, maxHeight)
 	}
 
+	private fun cached(key: String, compute: () -> Boolean): Boolean =
+		cache?.getOrPutBoolean(key, compute) ?: compute()
 }
@@ -1,5 +1,6 @@
 package org.jellyfin.androidtv.util.profile
 
+import android.content.Context
 import android.media.MediaFormat
 import org.jellyfin.androidtv.constant.Codec
 import org.jellyfin.apiclient.model.dlna.CodecProfile
@@ -11,10 +12,15 @@ import org.jellyfin.apiclient.model.dlna.ProfileConditionType
 import org.jellyfin.apiclient.model.dlna.ProfileConditionValue
 import org.jellyfin.apiclient.model.dlna.SubtitleDeliveryMethod
 import org.jellyfin.apiclient.model.dlna.SubtitleProfile
+import org.jellyfin.playback.core.support.CapabilityCache
+import org.koin.java.KoinJavaComponent
 import timber.log.Timber
 
 object ProfileHelper {
-	private val MediaTest by lazy { MediaCodecCapabilitiesTest() }
+	private val MediaTest by lazy {
+		val context = KoinJavaComponent.get<Context>(Context::class.java)
+		MediaCodecCapabilitiesTest(CapabilityCache(context, "mediacodec"))
+	}
 
 	val deviceAV1CodecProfile by lazy {
 		CodecProfile().apply {
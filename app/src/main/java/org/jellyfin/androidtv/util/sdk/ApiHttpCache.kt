@@ -0,0 +1,135 @@
+package org.jellyfin.androidtv.util.sdk
+
+import android.content.Context
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import okhttp3.Cache
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Response
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
+
+/**
+ * Disk-backed HTTP cache for the API client. Validators (ETag, Last-Modified) and Cache-Control
+ * headers sent by the server are honoured by OkHttp. Responses for frequently requested endpoints
+ * without caching headers are cached for [clientMaxAge] on the client.
+ *
+ * All responses vary on the Authorization header, which contains the access token and device id,
+ * so cached data is never shared between servers or users.
+ *
+ * Cached responses are bypassed for [clientMaxAge] after changes to user data or items and when
+ * [bypass] is called. Responses received in that period replace the cached ones.
+ */
+class ApiHttpCache(
+	context: Context,
+	maxSize: Long = 20L * 1024 * 1024,
+	private val clientMaxAge: Duration = 30.seconds,
+) {
+	companion object {
+		private const val HEADER_AUTHORIZATION = "Authorization"
+		private const val HEADER_CACHE_CONTROL = "Cache-Control"
+		private const val HEADER_EXPIRES = "Expires"
+		private const val HEADER_VARY = "Vary"
+
+		private val SAFE_METHODS = setOf("GET", "HEAD")
+
+		// Endpoints requested by most screens that the server does not send caching headers for, the
+		// server address might contain a base path so only the end of the path is matched
+		private val CLIENT_CACHEABLE_PATHS = listOf(
+			Regex("/Users/[^/]+/Views$"),
+			Regex("/UserViews$"),
+			Regex("/Items(/Latest|/Resume)?$"),
+			Regex("/DisplayPreferences/[^/]+$"),
+			Regex("/Shows/NextUp$"),
+		)
+
+		// Mutations that change user data or items visible in other responses, progress reports and
+		// capabilities are not included as they are posted constantly during playback
+		private val INVALIDATING_PATHS = listOf(
+			Regex("/(UserPlayedItems|UserFavoriteItems)/[^/]+$"),
+			Regex("/Users/[^/]+/(PlayedItems|FavoriteItems)/[^/]+$"),
+			Regex("/UserItems/[^/]+/(Rating|UserData)$"),
+			Regex("/Users/[^/]+/Items/[^/]+/(Rating|UserData)$"),
+			Regex("/Items/[^/]+$"),
+			Regex("/(Playlists|Collections)(/[^/]+/Items)?$"),
+			Regex("/Sessions/Playing/Stopped$"),
+		)
+	}
+
+	private val cache = Cache(File(context.cacheDir, "api"), maxSize)
+	private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+	@Volatile
+	private var bypassUntil = System.nanoTime()
+
+	fun createClient(): OkHttpClient = OkHttpClient.Builder()
+		.cache(cache)
+		.addInterceptor(::bypassAfterMutation)
+		.addNetworkInterceptor(::addCacheHeaders)
+		.build()
+
+	/**
+	 * Remove all cached responses. Called when the current session is destroyed.
+	 */
+	fun clear() {
+		scope.launch {
+			try {
+				cache.evictAll()
+			} catch (err: IOException) {
+				Timber.w(err, "Failed to clear API cache")
+			}
+		}
+	}
+
+	/**
+	 * Load all responses from the server for [duration], used when data is known to be changed.
+	 */
+	fun bypass(duration: Duration = clientMaxAge) {
+		bypassUntil = maxOf(bypassUntil, System.nanoTime() + duration.inWholeNanoseconds)
+	}
+
+	// Client cached responses expire within clientMaxAge, bypassing them for that period is enough to
+	// never read stale data without evicting anything on the request path
+	private fun bypassAfterMutation(chain: Interceptor.Chain): Response {
+		var request = chain.request()
+		val isSafe = request.method in SAFE_METHODS
+
+		if (isSafe && System.nanoTime() - bypassUntil < 0) {
+			request = request.newBuilder().header(HEADER_CACHE_CONTROL, "no-cache").build()
+		}
+
+		val response = chain.proceed(request)
+
+		val isInvalidating = INVALIDATING_PATHS.any { it.containsMatchIn(request.url.encodedPath) }
+		if (!isSafe && response.isSuccessful && isInvalidating) bypass()
+
+		return response
+	}
+
+	private fun addCacheHeaders(chain: Interceptor.Chain): Response {
+		val request = chain.request()
+		val response = chain.proceed(request)
+		if (request.method != "GET" || !response.isSuccessful) return response
+
+		return response.newBuilder().apply {
+			// Partition by user
+			val vary = response.headers(HEADER_VARY)
+			if (vary.none { it.contains(HEADER_AUTHORIZATION, ignoreCase = true) }) {
+				header(HEADER_VARY, (vary + HEADER_AUTHORIZATION).joinToString(", "))
+			}
+
+			// Short client-side max-age when the server does not specify one
+			val hasServerPolicy = response.header(HEADER_CACHE_CONTROL) != null || response.header(HEADER_EXPIRES) != null
+			val isClientCacheable = CLIENT_CACHEABLE_PATHS.any { it.containsMatchIn(request.url.encodedPath) }
+			if (!hasServerPolicy && isClientCacheable) {
+				header(HEADER_CACHE_CONTROL, "private, max-age=${clientMaxAge.inWholeSeconds}")
+			}
+		}.build()
+	}
+}
@@ -0,0 +1,79 @@
+package org.jellyfin.androidtv.data.store
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.jellyfin.sdk.model.api.BaseItemDto
+import org.jellyfin.sdk.model.api.BaseItemKind
+import org.jellyfin.sdk.model.api.UserItemDataDto
+import java.util.UUID
+
+private fun createItem(id: UUID = UUID.randomUUID(), name: String = "Item") = BaseItemDto(
+	id = id,
+	type = BaseItemKind.MOVIE,
+	name = name,
+)
+
+private fun createUserData(itemId: UUID, played: Boolean = false, position: Long = 0) = UserItemDataDto(
+	playbackPositionTicks = position,
+	playCount = if (played) 1 else 0,
+	isFavorite = false,
+	played = played,
+	key = itemId.toString(),
+	itemId = itemId,
+)
+
+class ItemStoreTests : FunSpec({
+	test("put() returns the stored instance for equal items") {
+		val store = ItemStore()
+		val item = createItem()
+
+		store.put(item) shouldBeSameInstanceAs item
+		store.put(item.copy()) shouldBeSameInstanceAs item
+	}
+
+	test("put() replaces changed items") {
+		val store = ItemStore()
+		val item = createItem()
+		val renamed = item.copy(name = "Renamed")
+
+		store.put(item)
+		store.put(renamed) shouldBeSameInstanceAs renamed
+		store[item.id] shouldBeSameInstanceAs renamed
+	}
+
+	test("put() drops the least recently used item") {
+		val store = ItemStore(maxItems = 2)
+		val first = store.put(createItem())
+		val second = store.put(createItem())
+
+		// Use the first item so the second one is dropped
+		store[first.id]
+		val third = store.put(createItem())
+
+		store[first.id] shouldBeSameInstanceAs first
+		store[second.id] shouldBe null
+		store[third.id] shouldBeSameInstanceAs third
+	}
+
+	test("updateUserData() applies user data to stored items") {
+		val store = ItemStore()
+		val item = store.put(createItem())
+		val userData = createUserData(item.id, played = true)
+
+		store.updateUserData(listOf(userData)) shouldContainExactly setOf(item.id)
+		store[item.id]?.userData shouldBe userData
+		store[item.id]?.name shouldBe item.name
+	}
+
+	test("updateUserData() ignores unchanged and unknown items") {
+		val store = ItemStore()
+		val userData = createUserData(UUID.randomUUID(), position = 10)
+		val item = store.put(createItem(userData.itemId).copy(userData = userData))
+
+		store.updateUserData(listOf(userData, createUserData(UUID.randomUUID()))).shouldBeEmpty()
+		store[item.id] shouldBeSameInstanceAs item
+	}
+})
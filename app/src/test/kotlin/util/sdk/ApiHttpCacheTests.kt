@@ -0,0 +1,114 @@
+package org.jellyfin.androidtv.util.sdk
+
+import android.content.Context
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.engine.spec.tempdir
+import io.kotest.matchers.shouldBe
+import io.mockk.every
+import io.mockk.mockk
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import kotlin.concurrent.thread
+
+private const val RESUME_PATH = "/Users/user/Items/Resume"
+private const val PLAYED_PATH = "/Users/user/PlayedItems/item"
+
+/**
+ * Minimal HTTP server on a background thread, closes the connection after each response.
+ */
+private class FakeServer {
+	@Volatile
+	var resumeItems = """["item"]"""
+
+	private val serverSocket = ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+
+	init {
+		thread(isDaemon = true) {
+			while (!serverSocket.isClosed) {
+				val socket = runCatching { serverSocket.accept() }.getOrNull() ?: break
+				socket.use { handle(it) }
+			}
+		}
+	}
+
+	private fun handle(socket: Socket) {
+		val reader = socket.getInputStream().bufferedReader()
+		val path = reader.readLine().orEmpty().split(" ").getOrNull(1)
+		// Skip the headers, the requests in these tests have no body
+		while (!reader.readLine().isNullOrEmpty()) Unit
+
+		val body = when (path) {
+			RESUME_PATH -> resumeItems
+			PLAYED_PATH -> "".also { resumeItems = "[]" }
+			else -> null
+		}
+
+		val response = when (body) {
+			null -> "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+			else -> "HTTP/1.1 200 OK\r\nContent-Length: ${body.length}\r\nConnection: close\r\n\r\n$body"
+		}
+		socket.getOutputStream().apply {
+			write(response.toByteArray())
+			flush()
+		}
+	}
+
+	fun url(path: String) = "http://127.0.0.1:${serverSocket.localPort}$path"
+
+	fun stop() = serverSocket.close()
+}
+
+private fun OkHttpClient.get(url: String) = newCall(Request.Builder().url(url).build())
+	.execute()
+	.use { response -> response.body?.string() }
+
+private fun OkHttpClient.post(url: String) = newCall(Request.Builder().url(url).post(ByteArray(0).toRequestBody()).build())
+	.execute()
+	.close()
+
+class ApiHttpCacheTests : FunSpec({
+	fun createApiHttpCache(): ApiHttpCache {
+		val cacheDir = tempdir()
+		val context = mockk<Context> {
+			every { this@mockk.cacheDir } returns cacheDir
+		}
+
+		return ApiHttpCache(context)
+	}
+
+	test("Loads the resume items from the server after an item is marked as played") {
+		val server = FakeServer()
+		val client = createApiHttpCache().createClient()
+
+		try {
+			client.get(server.url(RESUME_PATH)) shouldBe """["item"]"""
+			client.post(server.url(PLAYED_PATH))
+			client.get(server.url(RESUME_PATH)) shouldBe "[]"
+		} finally {
+			server.stop()
+		}
+	}
+
+	test("Loads the resume items from the server after a bypass") {
+		val server = FakeServer()
+		val apiHttpCache = createApiHttpCache()
+		val client = apiHttpCache.createClient()
+
+		try {
+			client.get(server.url(RESUME_PATH)) shouldBe """["item"]"""
+
+			// Items played on other devices are not noticed by the cache
+			server.resumeItems = "[]"
+			client.get(server.url(RESUME_PATH)) shouldBe """["item"]"""
+
+			apiHttpCache.bypass()
+			client.get(server.url(RESUME_PATH)) shouldBe "[]"
+		} finally {
+			server.stop()
+		}
+	}
+})
@@ -0,0 +1,66 @@
+plugins {
+	id("com.android.library")
+	kotlin("android")
+	kotlin("kapt")
+}
+
+android {
+	namespace = "org.jellyfin.playback.benchmark"
+	compileSdk = libs.versions.android.compileSdk.get().toInt()
+
+	defaultConfig {
+		minSdk = libs.versions.android.minSdk.get().toInt()
+	}
+
+	compileOptions {
+		isCoreLibraryDesugaringEnabled = true
+	}
+
+	lint {
+		lintConfig = file("$rootDir/android-lint.xml")
+		abortOnError = false
+	}
+
+	// The playback modules are Android libraries, the benchmarks use the unit test classpath with the
+	// mockable Android jar to run on the JVM
+	testOptions.unitTests.isReturnDefaultValues = true
+}
+
+// Run the benchmarks with the JMH runner in its own JVM so forks get the full classpath. Use
+// "-Pjmh=<regex>" to only run matching benchmarks
+val jmh by tasks.registering(JavaExec::class) {
+	group = "benchmark"
+	description = "Runs the JMH benchmarks and writes the results as JSON."
+
+	val unitTest = tasks.named<Test>("testReleaseUnitTest")
+	dependsOn(unitTest.map { it.taskDependencies })
+	classpath = files(unitTest.map { it.classpath })
+	mainClass.set("org.openjdk.jmh.Main")
+
+	val results = layout.buildDirectory.file("reports/jmh/results.json")
+	outputs.file(results)
+	outputs.upToDateWhen { false }
+
+	args("-rf", "json", "-rff", results.get().asFile.path)
+	providers.gradleProperty("jmh").orNull
+		?.takeIf { include -> include.isNotBlank() }
+		?.let { include -> args(include) }
+}
+
+dependencies {
+	// Playback
+	testImplementation(projects.playback.core)
+	testImplementation(testFixtures(projects.playback.core))
+
+	// Kotlin
+	testImplementation(libs.kotlinx.coroutines)
+	testImplementation(libs.kotlinx.coroutines.test)
+
+	// Compatibility (desugaring)
+	coreLibraryDesugaring(libs.android.desugar)
+
+	// Benchmarking
+	testImplementation(libs.jmh.core)
+	kaptTest(libs.jmh.generator.annprocess)
+	testImplementation(libs.mockk)
+}
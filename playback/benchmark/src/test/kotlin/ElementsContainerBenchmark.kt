@@ -0,0 +1,163 @@
+package org.jellyfin.playback.benchmark
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.map
+import org.jellyfin.playback.core.element.ElementKey
+import org.jellyfin.playback.core.element.ElementsContainer
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ElementsContainerBenchmark {
+	@JvmField
+	@Param("10", "100")
+	var keyCount = 0
+
+	private lateinit var keys: List<ElementKey<Int>>
+	private lateinit var container: ElementsContainer
+	private var index = 0
+
+	@Setup
+	fun setup() {
+		keys = List(keyCount) { i -> ElementKey("key$i") }
+		container = ElementsContainer()
+		keys.forEachIndexed { i, key -> container.put(key, i) }
+
+		// Observe half of the keys so puts notify a flow
+		keys.take(keyCount / 2).forEach { key -> container.getFlow(key) }
+	}
+
+	private fun nextKey(): ElementKey<Int> {
+		index = (index + 1) % keyCount
+		return keys[index]
+	}
+
+	@Benchmark
+	fun get() = container.getOrNull(nextKey())
+
+	@Benchmark
+	fun put() = container.put(nextKey(), index)
+
+	@Benchmark
+	fun getFlow() = container.getFlow(nextKey())
+}
+
+/**
+ * The previous implementation using a single shared flow, waking all subscribers on every change.
+ */
+private class SharedFlowElementsContainer {
+	private val elements = ConcurrentHashMap<ElementKey<*>, Any?>()
+	private val updateFlow = MutableSharedFlow<ElementKey<*>>(
+		replay = 1,
+		extraBufferCapacity = 1,
+		onBufferOverflow = BufferOverflow.DROP_OLDEST,
+	)
+
+	fun <T : Any> put(key: ElementKey<T>, value: T) {
+		elements[key] = value
+		updateFlow.tryEmit(key)
+	}
+
+	@Suppress("UNCHECKED_CAST")
+	fun <T : Any> getFlow(key: ElementKey<T>): Flow<T?> = updateFlow
+		.map { elements[key] as T? }
+		.distinctUntilChanged()
+}
+
+/**
+ * Compares the cost of a change with subscribers collecting every key between the per-key
+ * [ElementsContainer] and the previous [SharedFlowElementsContainer].
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ElementsContainerSubscribersBenchmark {
+	enum class Implementation {
+		PER_KEY,
+		SHARED_FLOW,
+	}
+
+	@JvmField
+	@Param("10", "100")
+	var keyCount = 0
+
+	@JvmField
+	@Param("1", "10")
+	var subscribersPerKey = 0
+
+	@JvmField
+	@Param("PER_KEY", "SHARED_FLOW")
+	var implementation = Implementation.PER_KEY
+
+	private lateinit var keys: List<ElementKey<Int>>
+	private lateinit var scope: CoroutineScope
+	private lateinit var putValue: (key: ElementKey<Int>, value: Int) -> Unit
+	private var index = 0
+	private var value = 0
+
+	@Setup
+	fun setup() {
+		keys = List(keyCount) { i -> ElementKey("key$i") }
+		scope = CoroutineScope(Job() + Dispatchers.Unconfined)
+
+		val getFlow: (key: ElementKey<Int>) -> Flow<Int?>
+		when (implementation) {
+			Implementation.PER_KEY -> {
+				val container = ElementsContainer()
+				putValue = { key, value -> container.put(key, value) }
+				getFlow = { key -> container.getFlow(key) }
+			}
+
+			Implementation.SHARED_FLOW -> {
+				val container = SharedFlowElementsContainer()
+				putValue = { key, value -> container.put(key, value) }
+				getFlow = { key -> container.getFlow(key) }
+			}
+		}
+
+		// The unconfined subscribers are resumed within put so their wake-ups are measured
+		keys.forEach { key ->
+			repeat(subscribersPerKey) { getFlow(key).launchIn(scope) }
+		}
+	}
+
+	@TearDown
+	fun tearDown() {
+		scope.cancel()
+	}
+
+	@Benchmark
+	fun put() {
+		index = (index + 1) % keyCount
+		// Always change the value, subscribers skip unchanged values
+		putValue(keys[index], ++value)
+	}
+}
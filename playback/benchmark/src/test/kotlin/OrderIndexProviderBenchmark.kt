@@ -0,0 +1,101 @@
+// The order index providers are internal to the core module
+@file:Suppress("INVISIBLE_MEMBER", "INVISIBLE_REFERENCE")
+
+package org.jellyfin.playback.benchmark
+
+import org.jellyfin.playback.core.queue.order.OrderIndexProvider
+import org.jellyfin.playback.core.queue.order.RandomOrderIndexProvider
+import org.jellyfin.playback.core.queue.order.ShuffleOrderIndexProvider
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class OrderIndexProviderBenchmark {
+	enum class Provider {
+		RANDOM,
+		SHUFFLE,
+	}
+
+	@JvmField
+	@Param("10", "100", "1000", "10000", "100000")
+	var size = 0
+
+	@JvmField
+	@Param("RANDOM", "SHUFFLE")
+	var provider = Provider.SHUFFLE
+
+	private lateinit var orderIndexProvider: OrderIndexProvider
+	private val playedIndices = mutableListOf<Int>()
+	private var currentIndex = 0
+
+	@Setup
+	fun setup() {
+		orderIndexProvider = when (provider) {
+			Provider.RANDOM -> RandomOrderIndexProvider()
+			Provider.SHUFFLE -> ShuffleOrderIndexProvider(Random(0))
+		}
+		reset()
+	}
+
+	private fun reset() {
+		orderIndexProvider.reset()
+		playedIndices.clear()
+		currentIndex = 0
+	}
+
+	/**
+	 * Peek the next entries like the queue does for the up next list.
+	 */
+	@Benchmark
+	fun provideIndices() = orderIndexProvider.provideIndices(15, size, playedIndices, currentIndex)
+
+	/**
+	 * Move to the next entry like the queue does when an entry ends, starting over once every entry is
+	 * played.
+	 */
+	@Benchmark
+	fun next(): Int {
+		val next = orderIndexProvider.provideIndices(1, size, playedIndices, currentIndex).firstOrNull()
+		if (next == null || playedIndices.size >= size) {
+			reset()
+			return currentIndex
+		}
+
+		orderIndexProvider.useNextIndex()
+		playedIndices.add(currentIndex)
+		currentIndex = next
+		return next
+	}
+
+	/**
+	 * Play through the whole queue, peeking the next entries before every skip like the queue does.
+	 */
+	@Benchmark
+	fun playAll(): Int {
+		reset()
+		repeat(size - 1) {
+			val next = orderIndexProvider.provideIndices(15, size, playedIndices, currentIndex).first()
+			orderIndexProvider.useNextIndex()
+			playedIndices.add(currentIndex)
+			currentIndex = next
+		}
+
+		return currentIndex
+	}
+}
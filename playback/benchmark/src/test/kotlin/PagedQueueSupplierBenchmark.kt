@@ -0,0 +1,49 @@
+package org.jellyfin.playback.benchmark
+
+import kotlinx.coroutines.runBlocking
+import org.jellyfin.playback.core.testing.FakePagedQueueSupplier
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class PagedQueueSupplierBenchmark {
+	@JvmField
+	@Param("10", "100", "1000", "10000", "100000")
+	var size = 0
+
+	private lateinit var supplier: FakePagedQueueSupplier
+	private val random = Random(0)
+	private var index = 0
+
+	@Setup
+	fun setup() {
+		supplier = FakePagedQueueSupplier(size)
+	}
+
+	@Benchmark
+	fun getItemSequential() = runBlocking {
+		index = (index + 1) % size
+		supplier.getItem(index)
+	}
+
+	@Benchmark
+	fun getItemRandom() = runBlocking {
+		supplier.getItem(random.nextInt(size))
+	}
+}
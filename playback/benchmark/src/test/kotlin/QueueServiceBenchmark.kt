@@ -0,0 +1,121 @@
+package org.jellyfin.playback.benchmark
+
+import io.mockk.mockk
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExecutorCoroutineDispatcher
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.jellyfin.playback.core.PlaybackManager
+import org.jellyfin.playback.core.PlaybackManagerBuilder
+import org.jellyfin.playback.core.model.PlaybackOrder
+import org.jellyfin.playback.core.plugin.playbackPlugin
+import org.jellyfin.playback.core.queue.Queue
+import org.jellyfin.playback.core.queue.queue
+import org.jellyfin.playback.core.testing.FakeMediaStreamResolver
+import org.jellyfin.playback.core.testing.FakePlayerBackend
+import org.jellyfin.playback.core.testing.FakePlayerBackendOptions
+import org.jellyfin.playback.core.testing.FakeQueueSupplier
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.days
+import kotlin.time.TimeSource
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OptIn(ExperimentalCoroutinesApi::class)
+open class QueueServiceBenchmark {
+	@JvmField
+	@Param("10", "100", "1000", "10000", "100000")
+	var size = 0
+
+	@JvmField
+	@Param("DEFAULT", "RANDOM", "SHUFFLE")
+	var order = PlaybackOrder.DEFAULT
+
+	private lateinit var mainDispatcher: ExecutorCoroutineDispatcher
+	private lateinit var job: Job
+	private lateinit var manager: PlaybackManager
+	private lateinit var supplier: FakeQueueSupplier
+	private val random = Random(0)
+
+	private val queue: Queue get() = manager.queue
+
+	@Setup
+	fun setup() {
+		mainDispatcher = Executors.newSingleThreadExecutor().asCoroutineDispatcher()
+		Dispatchers.setMain(mainDispatcher)
+		job = Job()
+
+		// Never finish buffering so the entries don't start playing while benchmarking the queue
+		val startTime = TimeSource.Monotonic.markNow()
+		val backend = FakePlayerBackend(
+			scope = CoroutineScope(job + mainDispatcher),
+			currentTime = { startTime.elapsedNow() },
+			options = FakePlayerBackendOptions(startLatency = 365.days),
+		)
+
+		manager = PlaybackManagerBuilder(mockk(relaxed = true)).apply {
+			install(playbackPlugin {
+				provide(backend)
+				provide(FakeMediaStreamResolver())
+			})
+			parentJob = job
+		}.build()
+
+		manager.state.setPlaybackOrder(order)
+		supplier = FakeQueueSupplier(size)
+		runBlocking { resetQueue() }
+	}
+
+	@TearDown
+	fun tearDown() {
+		job.cancel()
+		Dispatchers.resetMain()
+		mainDispatcher.close()
+	}
+
+	private suspend fun resetQueue() {
+		queue.clear()
+		queue.addSupplier(supplier)
+		queue.setIndex(0)
+	}
+
+	@Benchmark
+	fun next() = runBlocking {
+		// Start over when the end of the queue is reached
+		queue.next() ?: resetQueue()
+	}
+
+	@Benchmark
+	fun peekNext() = runBlocking {
+		queue.peekNext(15)
+	}
+
+	@Benchmark
+	fun setIndex() = runBlocking {
+		queue.setIndex(random.nextInt(size))
+	}
+}
@@ -23,6 +23,13 @@ android {
 	testOptions.unitTests.all {
 		it.useJUnitPlatform()
 	}
+
+	// Allow the playback manager to run in plain JVM tests
+	testOptions.unitTests.isReturnDefaultValues = true
+
+	testFixtures {
+		enable = true
+	}
 }
 
 dependencies {
@@ -45,4 +52,10 @@ dependencies {
 	testImplementation(libs.kotest.runner.junit5)
 	testImplementation(libs.kotest.assertions)
 	testImplementation(libs.mockk)
+	testImplementation(libs.kotlinx.coroutines.test)
+
+	// Test fixtures
+	testFixturesImplementation(libs.kotlinx.coroutines)
+	testFixturesImplementation(libs.mockk)
+	testFixturesApi(libs.kotlinx.coroutines.test)
 }
@@ -1,5 +1,8 @@
 package org.jellyfin.playback.core
 
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.cancel
@@ -14,6 +17,7 @@ class PlaybackManager internal constructor(
 	private val services: MutableList<PlayerService>,
 	val options: PlaybackManagerOptions,
 	parentJob: Job? = null,
+	private val dispatcher: CoroutineDispatcher = Dispatchers.Default,
 ) {
 	internal val backendService = BackendService().also { service ->
 		service.switchBackend(backend)
@@ -23,16 +27,18 @@ class PlaybackManager internal constructor(
 	val state: PlayerState = MutablePlayerState(
 		options = options,
 		backendService = backendService,
-		queue = getService()
+		queue = getService(),
+		// The backend is accessed on the main thread
+		coroutineScope = CoroutineScope(Job(job) + Dispatchers.Main),
 	)
 
 	init {
-		services.forEach { it.initialize(this, state, Job(job)) }
+		services.forEach { it.initialize(this, state, Job(job), dispatcher) }
 	}
 
 	fun addService(service: PlayerService) {
 		Timber.i("Adding service $service")
-		service.initialize(this, state, Job(job))
+		service.initialize(this, state, Job(job), dispatcher)
 		services.add(service)
 	}
 
@@ -3,6 +3,9 @@ package org.jellyfin.playback.core
 import android.content.Context
 import android.os.Build
 import androidx.core.content.getSystemService
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import org.jellyfin.playback.core.backend.PlayerBackend
 import org.jellyfin.playback.core.mediastream.MediaStreamResolver
 import org.jellyfin.playback.core.mediastream.MediaStreamService
@@ -20,6 +23,13 @@ class PlaybackManagerBuilder(context: Context) {
 	// Options
 	var defaultRewindAmount: (() -> Duration)? = null
 	var defaultFastForwardAmount: (() -> Duration)? = null
+	var mediaStreamLookAhead: Duration? = null
+	var mediaStreamResolverTimeout: Duration? = null
+	var queueWindowSize: Int? = null
+
+	// Coroutines
+	var parentJob: Job? = null
+	var dispatcher: CoroutineDispatcher? = null
 
 	fun install(pluginFactory: PlaybackPlugin) {
 		factories.add(pluginFactory)
@@ -57,8 +67,17 @@ class PlaybackManagerBuilder(context: Context) {
 			playerVolumeState = volumeState,
 			defaultRewindAmount = defaultRewindAmount ?: { 10.seconds },
 			defaultFastForwardAmount = defaultFastForwardAmount ?: { 10.seconds },
+			mediaStreamLookAhead = mediaStreamLookAhead ?: 30.seconds,
+			mediaStreamResolverTimeout = mediaStreamResolverTimeout ?: 30.seconds,
+			queueWindowSize = queueWindowSize ?: 50,
+		)
+		return PlaybackManager(
+			backend = backends.first(),
+			services = services,
+			options = options,
+			parentJob = parentJob,
+			dispatcher = dispatcher ?: Dispatchers.Default,
 		)
-		return PlaybackManager(backends.first(), services, options)
 	}
 }
 
@@ -7,4 +7,21 @@ class PlaybackManagerOptions(
 
 	val defaultRewindAmount: () -> Duration,
 	val defaultFastForwardAmount: () -> Duration,
+
+	/**
+	 * The remaining duration of the current entry at which the next entry is resolved and prepared
+	 * in the backend.
+	 */
+	val mediaStreamLookAhead: Duration,
+
+	/**
+	 * The maximum time to wait for the media stream resolvers to resolve a stream.
+	 */
+	val mediaStreamResolverTimeout: Duration,
+
+	/**
+	 * The maximum amount of queue entries to keep in memory. Entries that are not recently used are
+	 * evicted and supplied again when needed.
+	 */
+	val queueWindowSize: Int,
 )
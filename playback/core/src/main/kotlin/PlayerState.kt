@@ -1,5 +1,7 @@
 package org.jellyfin.playback.core
 
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -12,6 +14,7 @@ import org.jellyfin.playback.core.model.PositionInfo
 import org.jellyfin.playback.core.model.RepeatMode
 import org.jellyfin.playback.core.model.VideoSize
 import org.jellyfin.playback.core.queue.QueueService
+import org.jellyfin.playback.core.stats.PlayerStats
 import kotlin.time.Duration
 
 interface PlayerState {
@@ -22,13 +25,32 @@ interface PlayerState {
 	val playbackOrder: StateFlow<PlaybackOrder>
 	val repeatMode: StateFlow<RepeatMode>
 
+	/**
+	 * The last media stream that played until its end. The backend might continue with the prepared
+	 * entry without changing the [playState].
+	 */
+	val endedMediaStream: StateFlow<PlayableMediaStream?>
+
 	/**
 	 * The position information for the currently playing item or [PositionInfo.EMPTY]. This
 	 * property is not reactive to avoid performance penalties. Manually read the values every
-	 * second for UI or read when necessary.
+	 * second for UI or read when necessary, or use [positionInfoTicker] to receive periodic updates.
 	 */
 	val positionInfo: PositionInfo
 
+	/**
+	 * Flow of the [positionInfo], emitted every [interval] while playing and once when the play state
+	 * changes. The position is only read while the flow is collected and reads are shared between
+	 * all collectors.
+	 */
+	fun positionInfoTicker(interval: Duration): Flow<PositionInfo>
+
+	/**
+	 * Diagnostic statistics of the current backend or [PlayerStats.EMPTY]. Like [positionInfo] this
+	 * property is not reactive and should be read periodically.
+	 */
+	val stats: PlayerStats
+
 	// Queue management
 	fun play()
 	fun stop()
@@ -57,6 +79,7 @@ class MutablePlayerState(
 	private val options: PlaybackManagerOptions,
 	private val backendService: BackendService,
 	private val queue: QueueService?,
+	coroutineScope: CoroutineScope,
 ) : PlayerState {
 	override val volume: PlayerVolumeState
 
@@ -75,9 +98,19 @@ class MutablePlayerState(
 	private val _repeatMode = MutableStateFlow(RepeatMode.NONE)
 	override val repeatMode: StateFlow<RepeatMode> get() = _repeatMode.asStateFlow()
 
+	private val _endedMediaStream = MutableStateFlow<PlayableMediaStream?>(null)
+	override val endedMediaStream: StateFlow<PlayableMediaStream?> get() = _endedMediaStream.asStateFlow()
+
 	override val positionInfo: PositionInfo
 		get() = backendService.backend?.getPositionInfo() ?: PositionInfo.EMPTY
 
+	private val positionTicker = PositionTicker(coroutineScope, _playState) { positionInfo }
+
+	override fun positionInfoTicker(interval: Duration): Flow<PositionInfo> = positionTicker.sample(interval)
+
+	override val stats: PlayerStats
+		get() = backendService.backend?.getStats() ?: PlayerStats.EMPTY
+
 	init {
 		backendService.addListener(object : PlayerBackendEventListener {
 			override fun onPlayStateChange(state: PlayState) {
@@ -88,7 +121,12 @@ class MutablePlayerState(
 				_videoSize.value = VideoSize(width, height)
 			}
 
-			override fun onMediaStreamEnd(mediaStream: PlayableMediaStream) = Unit
+			override fun onMediaStreamEnd(mediaStream: PlayableMediaStream) {
+				_endedMediaStream.value = mediaStream
+			}
+
+			override fun onBufferingChange(buffering: Boolean) = Unit
+			override fun onSeek(position: Duration) = Unit
 		})
 
 		volume = options.playerVolumeState
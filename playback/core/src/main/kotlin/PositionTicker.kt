@@ -0,0 +1,80 @@
+package org.jellyfin.playback.core
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.flow.transformLatest
+import kotlinx.coroutines.flow.update
+import org.jellyfin.playback.core.model.PlayState
+import org.jellyfin.playback.core.model.PositionInfo
+import kotlin.time.Duration
+
+/**
+ * Shared ticker reading the position from the backend. The backend is only read while there are
+ * subscribers and only periodically while playing. All subscribers share the same reads, the
+ * ticker runs at the shortest interval requested by a subscriber. Slow subscribers only receive the
+ * latest position and never delay the ticks of other subscribers.
+ */
+internal class PositionTicker(
+	scope: CoroutineScope,
+	playState: StateFlow<PlayState>,
+	private val readPositionInfo: () -> PositionInfo,
+) {
+	private data class Tick(
+		val positionInfo: PositionInfo,
+		// The time since the previous tick or null when emitted due to a play state change
+		val interval: Duration?,
+	)
+
+	// Requested intervals of all active subscribers
+	private val intervals = MutableStateFlow<List<Duration>>(emptyList())
+	private val tickInterval = intervals.map { it.minOrNull() }.distinctUntilChanged()
+
+	private val ticks = combine(playState, tickInterval) { playState, interval -> playState to interval }
+		.transformLatest { (playState, interval) ->
+			if (interval == null) return@transformLatest
+
+			// Always emit once on changes so subscribers receive the position after pausing or seeking
+			emit(Tick(readPositionInfo(), interval = null))
+			if (playState != PlayState.PLAYING) return@transformLatest
+
+			while (true) {
+				delay(interval)
+				emit(Tick(readPositionInfo(), interval))
+			}
+		}
+		.shareIn(scope, SharingStarted.WhileSubscribed(replayExpirationMillis = 0), replay = 1)
+
+	fun sample(interval: Duration): Flow<PositionInfo> = flow {
+		require(interval.isPositive()) { "Interval must be positive" }
+
+		intervals.update { it + interval }
+		try {
+			// Time since the last emitted tick, counted in ticks so it follows the ticker's clock
+			var elapsed: Duration? = null
+			ticks.collect { tick ->
+				elapsed = if (tick.interval == null) null else elapsed?.plus(tick.interval)
+
+				// Allow ticks to arrive slightly early to avoid skipping one when the tick interval
+				// is not a divisor of the requested interval
+				val tolerance = (tick.interval ?: Duration.ZERO) / 2
+				val currentElapsed = elapsed
+				if (currentElapsed == null || currentElapsed >= interval - tolerance) {
+					elapsed = Duration.ZERO
+					emit(tick.positionInfo)
+				}
+			}
+		} finally {
+			intervals.update { it - interval }
+		}
+	}.conflate()
+}
@@ -5,6 +5,7 @@ import org.jellyfin.playback.core.mediastream.PlayableMediaStream
 import org.jellyfin.playback.core.model.PlayState
 import org.jellyfin.playback.core.ui.PlayerSubtitleView
 import org.jellyfin.playback.core.ui.PlayerSurfaceView
+import kotlin.time.Duration
 
 /**
  * Service keeping track of the current playback backend and its related surface view.
@@ -94,5 +95,13 @@ class BackendService {
 		override fun onMediaStreamEnd(mediaStream: PlayableMediaStream) {
 			callListeners { onMediaStreamEnd(mediaStream) }
 		}
+
+		override fun onBufferingChange(buffering: Boolean) {
+			callListeners { onBufferingChange(buffering) }
+		}
+
+		override fun onSeek(position: Duration) {
+			callListeners { onSeek(position) }
+		}
 	}
 }
@@ -1,7 +1,10 @@
 package org.jellyfin.playback.core.backend
 
+import org.jellyfin.playback.core.stats.PlayerStats
+
 /**
- * A base class that implements the event listening part of [PlayerBackend].
+ * A base class that implements the event listening part of [PlayerBackend]. Backends without
+ * statistics report [PlayerStats.EMPTY].
  */
 abstract class BasePlayerBackend : PlayerBackend {
 	private var _listener: PlayerBackendEventListener? = null
@@ -10,4 +13,6 @@ abstract class BasePlayerBackend : PlayerBackend {
 	override fun setListener(eventListener: PlayerBackendEventListener?) {
 		_listener = eventListener
 	}
+
+	override fun getStats(): PlayerStats = PlayerStats.EMPTY
 }
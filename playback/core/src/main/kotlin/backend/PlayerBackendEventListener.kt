@@ -2,9 +2,12 @@ package org.jellyfin.playback.core.backend
 
 import org.jellyfin.playback.core.mediastream.PlayableMediaStream
 import org.jellyfin.playback.core.model.PlayState
+import kotlin.time.Duration
 
 interface PlayerBackendEventListener {
 	fun onPlayStateChange(state: PlayState)
 	fun onVideoSizeChange(width: Int, height: Int)
 	fun onMediaStreamEnd(mediaStream: PlayableMediaStream)
+	fun onBufferingChange(buffering: Boolean)
+	fun onSeek(position: Duration)
 }
@@ -0,0 +1,68 @@
+package org.jellyfin.playback.core.bandwidth
+
+import java.net.URI
+import java.net.URISyntaxException
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.DurationUnit
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * Smoothed throughput estimate per server. Samples are taken from the player's data transfers and
+ * from bandwidth probes. Estimates older than [maxAge] are ignored.
+ */
+class BandwidthEstimator(
+	private val smoothingFactor: Double = 0.3,
+	private val maxAge: Duration = 10.minutes,
+	private val timeSource: TimeSource = TimeSource.Monotonic,
+) {
+	private data class Estimate(
+		val bitrate: Double,
+		val updated: TimeMark,
+	)
+
+	private val estimates = ConcurrentHashMap<String, Estimate>()
+
+	/**
+	 * Add a sample of [bytes] transferred from the server of [url] in [duration].
+	 */
+	fun addSample(url: String, bytes: Long, duration: Duration) {
+		// Short transfers are dominated by latency
+		if (bytes < MIN_SAMPLE_BYTES || duration < MIN_SAMPLE_DURATION) return
+
+		val server = getServer(url) ?: return
+		val bitrate = bytes * Byte.SIZE_BITS / duration.toDouble(DurationUnit.SECONDS)
+
+		estimates.compute(server) { _, current ->
+			val smoothedBitrate = when {
+				current == null || current.updated.elapsedNow() > maxAge -> bitrate
+				else -> current.bitrate + smoothingFactor * (bitrate - current.bitrate)
+			}
+			Estimate(smoothedBitrate, timeSource.markNow())
+		}
+	}
+
+	/**
+	 * Get the estimated throughput in bits per second for the server of [url] or null when unknown.
+	 */
+	fun getEstimate(url: String): Long? {
+		val server = getServer(url) ?: return null
+		val estimate = estimates[server] ?: return null
+		if (estimate.updated.elapsedNow() > maxAge) return null
+		return estimate.bitrate.toLong()
+	}
+
+	private fun getServer(url: String) = try {
+		URI(url).authority?.lowercase()
+	} catch (_: URISyntaxException) {
+		null
+	}
+
+	companion object {
+		private const val MIN_SAMPLE_BYTES = 32 * 1024L
+		private val MIN_SAMPLE_DURATION = 10.milliseconds
+	}
+}
@@ -1,22 +1,18 @@
 package org.jellyfin.playback.core.element
 
-import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.MutableSharedFlow
-import kotlinx.coroutines.flow.distinctUntilChanged
-import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.asStateFlow
 import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Container to hold elements identified with an [ElementKey].
  */
 open class ElementsContainer {
-	private val elements = ConcurrentHashMap<ElementKey<*>, Any?>()
-	private val updateFlow = MutableSharedFlow<ElementKey<*>>(
-		replay = 1,
-		extraBufferCapacity = 1,
-		onBufferOverflow = BufferOverflow.DROP_OLDEST,
-	)
+	private val elements = ConcurrentHashMap<ElementKey<*>, Any>()
+
+	// State per key, only created when the key is observed
+	private val flows = ConcurrentHashMap<ElementKey<*>, MutableStateFlow<Any?>>()
 
 	fun <T : Any> get(key: ElementKey<T>): T = getOrNull(key)
 		?: error("No element found for key $key.")
@@ -28,17 +24,26 @@ open class ElementsContainer {
 
 	fun <T : Any> put(key: ElementKey<T>, value: T) {
 		elements[key] = value
-		updateFlow.tryEmit(key)
+		notifyFlow(key)
 	}
 
 	fun <T : Any> remove(key: ElementKey<T>) {
 		elements.remove(key)
-		updateFlow.tryEmit(key)
+		notifyFlow(key)
+	}
+
+	private fun notifyFlow(key: ElementKey<*>) {
+		// Read the latest value while holding the lock for the key so concurrent writes can't emit
+		// an outdated value last
+		flows.computeIfPresent(key) { _, flow ->
+			flow.value = elements[key]
+			flow
+		}
 	}
 
+	@Suppress("UNCHECKED_CAST")
 	fun <T : Any> getFlow(key: ElementKey<T>): Flow<T?> {
-		return updateFlow
-			.map { getOrNull(key) }
-			.distinctUntilChanged()
+		val flow = flows.computeIfAbsent(key) { MutableStateFlow(elements[key]) }
+		return flow.asStateFlow() as Flow<T?>
 	}
 }
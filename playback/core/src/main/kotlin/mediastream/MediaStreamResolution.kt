@@ -0,0 +1,14 @@
+package org.jellyfin.playback.core.mediastream
+
+import org.jellyfin.playback.core.queue.QueueEntry
+import kotlin.time.Duration
+
+/**
+ * A single attempt of a [MediaStreamResolver] to resolve the stream for a [QueueEntry].
+ */
+internal data class MediaStreamResolution(
+	val entry: QueueEntry,
+	val resolver: MediaStreamResolver,
+	val duration: Duration,
+	val resolved: Boolean,
+)
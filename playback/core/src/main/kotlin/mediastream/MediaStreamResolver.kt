@@ -7,6 +7,12 @@ import org.jellyfin.playback.core.support.PlaySupportReport
  * Determine the media stream for a given queue item.
  */
 interface MediaStreamResolver {
+	/**
+	 * Cheap check to determine if this resolver applies to the given queue entry, without doing any
+	 * requests. Only resolvers returning true are used to resolve the stream.
+	 */
+	fun canResolve(queueEntry: QueueEntry): Boolean = true
+
 	/**
 	 * @return [PlayableMediaStream] or null if no stream can be determined by this resolver
 	 */
@@ -1,22 +1,58 @@
 package org.jellyfin.playback.core.mediastream
 
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.plus
+import kotlinx.coroutines.withTimeoutOrNull
 import org.jellyfin.playback.core.backend.PlayerBackend
 import org.jellyfin.playback.core.plugin.PlayerService
 import org.jellyfin.playback.core.queue.QueueEntry
 import org.jellyfin.playback.core.queue.queue
 import timber.log.Timber
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
+import kotlin.time.TimeSource
 
 internal class MediaStreamService(
 	private val mediaStreamResolvers: Collection<MediaStreamResolver>,
+	private val timeSource: TimeSource = TimeSource.Monotonic,
 ) : PlayerService() {
+	companion object {
+		private val LOOK_AHEAD_INTERVAL = 1.seconds
+		private const val RESOLUTIONS_BUFFER_CAPACITY = 16
+	}
+
+	private var preparedEntry: QueueEntry? = null
+
+	// Entries that are currently being resolved, only accessed from the main thread
+	private val pendingResolutions = mutableMapOf<QueueEntry, Deferred<PlayableMediaStream?>>()
+
+	private val _resolutions = MutableSharedFlow<MediaStreamResolution>(
+		extraBufferCapacity = RESOLUTIONS_BUFFER_CAPACITY,
+		onBufferOverflow = BufferOverflow.DROP_OLDEST,
+	)
+
+	/**
+	 * Emits every attempt of a [MediaStreamResolver] to resolve the stream of an entry.
+	 */
+	val resolutions: SharedFlow<MediaStreamResolution> get() = _resolutions.asSharedFlow()
+
 	override suspend fun onInitialize() {
 		manager.queue.entry.onEach { entry ->
 			Timber.d("Queue entry changed to $entry")
 			val backend = requireNotNull(manager.backend)
+			preparedEntry = null
 
 			if (entry == null) {
 				backend.setCurrent(null)
@@ -37,23 +73,90 @@ internal class MediaStreamService(
 				}
 			}
 		}.launchIn(coroutineScope + Dispatchers.Main)
-		// TODO Register some kind of event when $current item is at -30 seconds to setNext()
+
+		// Prepare the next entry when the current entry is about to end
+		state.positionInfoTicker(LOOK_AHEAD_INTERVAL).onEach { positionInfo ->
+			val remaining = positionInfo.duration - positionInfo.active
+			if (positionInfo.duration > Duration.ZERO && remaining <= manager.options.mediaStreamLookAhead) {
+				prepareNextEntry()
+			}
+		}.launchIn(coroutineScope + Dispatchers.Main)
+	}
+
+	private suspend fun prepareNextEntry() {
+		val backend = requireNotNull(manager.backend)
+		val nextEntry = manager.queue.peekNext(usePlaybackOrder = true, useRepeatMode = true)
+
+		// Skip when there is no next entry, it's a repeat of the current entry or it's already prepared
+		if (nextEntry == null || nextEntry == manager.queue.entry.value || nextEntry == preparedEntry) return
+		preparedEntry = nextEntry
+
+		if (nextEntry.ensureMediaStream(backend)) {
+			Timber.d("Preparing next entry $nextEntry")
+			backend.prepareItem(nextEntry)
+		} else {
+			Timber.w("Unable to resolve stream for next entry $nextEntry")
+		}
 	}
 
 	private suspend fun QueueEntry.ensureMediaStream(
 		backend: PlayerBackend,
 	): Boolean {
-		mediaStream = mediaStream ?: mediaStreamResolvers.firstNotNullOfOrNull { resolver ->
-			runCatching {
-				resolver.getStream(this, backend::supportsStream)
-			}.onFailure {
-				Timber.e(it, "Media stream resolver failed for $this")
-			}.getOrNull()
+		if (mediaStream == null) {
+			// Share the resolution when the entry is already being resolved (e.g. while preparing)
+			val resolution = pendingResolutions.getOrPut(this) {
+				coroutineScope.async(Dispatchers.Main) { resolveMediaStream(backend) }
+			}
+
+			try {
+				mediaStream = mediaStream ?: resolution.await()
+			} finally {
+				if (resolution.isCompleted && pendingResolutions[this] == resolution) pendingResolutions.remove(this)
+			}
 		}
 
 		return mediaStream != null
 	}
 
+	private suspend fun QueueEntry.resolveMediaStream(
+		backend: PlayerBackend,
+	): PlayableMediaStream? {
+		val resolvers = mediaStreamResolvers.filter { resolver -> resolver.canResolve(this) }
+		if (resolvers.isEmpty()) return null
+
+		// Race all applicable resolvers, the first resolved stream wins
+		var timedOut = true
+		val stream = withTimeoutOrNull(manager.options.mediaStreamResolverTimeout) {
+			channelFlow {
+				for (resolver in resolvers) launch {
+					tryResolver(resolver, backend)?.let { send(it) }
+				}
+			}.firstOrNull().also { timedOut = false }
+		}
+
+		if (timedOut) Timber.w("Media stream resolvers timed out for $this")
+		return stream
+	}
+
+	@Suppress("TooGenericExceptionCaught")
+	private suspend fun QueueEntry.tryResolver(
+		resolver: MediaStreamResolver,
+		backend: PlayerBackend,
+	): PlayableMediaStream? {
+		val start = timeSource.markNow()
+		val stream = try {
+			resolver.getStream(this, backend::supportsStream)
+		} catch (err: CancellationException) {
+			throw err
+		} catch (err: Exception) {
+			Timber.e(err, "Media stream resolver failed for $this")
+			null
+		}
+
+		_resolutions.tryEmit(MediaStreamResolution(this, resolver, start.elapsedNow(), stream != null))
+		return stream
+	}
+
 	private fun PlayerBackend.setCurrent(item: QueueEntry?) {
 		Timber.d("Current item changed to $item")
 
@@ -0,0 +1,76 @@
+package org.jellyfin.playback.core.metrics
+
+import org.jellyfin.playback.core.mediastream.MediaConversionMethod
+import kotlin.time.Duration
+
+/**
+ * Count, total and maximum of a measured duration.
+ */
+data class DurationStatistics(
+	val count: Int,
+	val total: Duration,
+	val max: Duration,
+) {
+	companion object {
+		val EMPTY = DurationStatistics(0, Duration.ZERO, Duration.ZERO)
+	}
+
+	val average: Duration get() = if (count == 0) Duration.ZERO else total / count
+
+	operator fun plus(duration: Duration) = DurationStatistics(
+		count = count + 1,
+		total = total + duration,
+		max = maxOf(max, duration),
+	)
+
+	operator fun plus(other: DurationStatistics) = DurationStatistics(
+		count = count + other.count,
+		total = total + other.total,
+		max = maxOf(max, other.max),
+	)
+}
+
+/**
+ * Metrics for the playback of a single queue entry.
+ */
+data class PlaybackSessionMetrics(
+	val mediaId: String?,
+	val conversionMethod: MediaConversionMethod?,
+	/**
+	 * Time from the queue entry change to the first playing state or null if the entry did not
+	 * start playing (yet).
+	 */
+	val startupLatency: Duration?,
+	/**
+	 * Time spent in stream resolution per media stream resolver.
+	 */
+	val resolverDurations: Map<String, Duration>,
+	val rebuffers: DurationStatistics,
+	/**
+	 * Time from seeking until the backend finished buffering the new position.
+	 */
+	val seekLatency: DurationStatistics,
+)
+
+/**
+ * Aggregated metrics of all finished sessions and the currently active session.
+ */
+data class PlaybackMetrics(
+	val currentSession: PlaybackSessionMetrics?,
+	val sessionCount: Int,
+	val startupLatency: Map<MediaConversionMethod, DurationStatistics>,
+	val resolverDurations: Map<String, DurationStatistics>,
+	val rebuffers: DurationStatistics,
+	val seekLatency: DurationStatistics,
+) {
+	companion object {
+		val EMPTY = PlaybackMetrics(
+			currentSession = null,
+			sessionCount = 0,
+			startupLatency = emptyMap(),
+			resolverDurations = emptyMap(),
+			rebuffers = DurationStatistics.EMPTY,
+			seekLatency = DurationStatistics.EMPTY,
+		)
+	}
+}
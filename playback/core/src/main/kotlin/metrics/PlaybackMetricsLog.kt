@@ -0,0 +1,41 @@
+package org.jellyfin.playback.core.metrics
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.io.File
+
+/**
+ * Rolling log file containing a single line per finished playback session. The file is trimmed to
+ * the most recent [maxLines] lines once it contains twice as many lines.
+ */
+class PlaybackMetricsLog(
+	private val file: File,
+	private val maxLines: Int = 500,
+) {
+	private val lock = Mutex()
+	private var lineCount: Int? = null
+
+	suspend fun append(line: String) = lock.withLock {
+		withContext(Dispatchers.IO) {
+			file.parentFile?.mkdirs()
+			file.appendText(line + "\n")
+
+			val count = lineCount?.plus(1) ?: readLines().size
+			lineCount = if (count >= maxLines * 2) {
+				val lines = readLines().takeLast(maxLines)
+				file.writeText(lines.joinToString(separator = "\n", postfix = "\n"))
+				lines.size
+			} else {
+				count
+			}
+		}
+	}
+
+	suspend fun read(): List<String> = lock.withLock {
+		withContext(Dispatchers.IO) { readLines() }
+	}
+
+	private fun readLines() = if (file.exists()) file.readLines().filter { it.isNotBlank() } else emptyList()
+}
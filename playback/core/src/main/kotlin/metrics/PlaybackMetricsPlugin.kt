@@ -0,0 +1,14 @@
+package org.jellyfin.playback.core.metrics
+
+import org.jellyfin.playback.core.plugin.playbackPlugin
+import java.io.File
+
+/**
+ * Records playback metrics using the [PlaybackMetricsService]. Finished sessions are written to
+ * [logFile] when set.
+ */
+fun playbackMetricsPlugin(
+	logFile: File? = null,
+) = playbackPlugin {
+	provide(PlaybackMetricsService(logFile?.let(::PlaybackMetricsLog)))
+}
@@ -0,0 +1,201 @@
+package org.jellyfin.playback.core.metrics
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.plus
+import org.jellyfin.playback.core.backend.PlayerBackendEventListener
+import org.jellyfin.playback.core.mediastream.MediaStreamResolution
+import org.jellyfin.playback.core.mediastream.MediaStreamService
+import org.jellyfin.playback.core.mediastream.PlayableMediaStream
+import org.jellyfin.playback.core.mediastream.mediaStream
+import org.jellyfin.playback.core.model.PlayState
+import org.jellyfin.playback.core.plugin.PlayerService
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.queue.metadata
+import org.jellyfin.playback.core.queue.queue
+import timber.log.Timber
+import java.util.WeakHashMap
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * Service recording quality of experience metrics for each played queue entry. All events are
+ * handled on the main thread.
+ */
+class PlaybackMetricsService(
+	private val log: PlaybackMetricsLog? = null,
+	private val timeSource: TimeSource = TimeSource.Monotonic,
+) : PlayerService() {
+	companion object {
+		// Buffering that starts later than this after seeking is a rebuffer, the seek completed
+		// without buffering
+		private val SEEK_BUFFERING_WINDOW = 500.milliseconds
+	}
+
+	private class Session(val entry: QueueEntry, val start: TimeMark) {
+		var startupLatency: Duration? = null
+		val resolverDurations = mutableMapOf<String, Duration>()
+		var rebuffers = DurationStatistics.EMPTY
+		var rebufferStart: TimeMark? = null
+		var seekLatency = DurationStatistics.EMPTY
+		var seekStart: TimeMark? = null
+
+		fun toMetrics() = PlaybackSessionMetrics(
+			mediaId = entry.metadata.mediaId,
+			conversionMethod = entry.mediaStream?.conversionMethod,
+			startupLatency = startupLatency,
+			resolverDurations = resolverDurations.toMap(),
+			rebuffers = rebuffers,
+			seekLatency = seekLatency,
+		)
+	}
+
+	private val _metrics = MutableStateFlow(PlaybackMetrics.EMPTY)
+	val metrics: StateFlow<PlaybackMetrics> get() = _metrics.asStateFlow()
+
+	private var session: Session? = null
+
+	// Streams are resolved ahead of time when the next entry is prepared
+	private val pendingResolverDurations = WeakHashMap<QueueEntry, MutableMap<String, Duration>>()
+
+	override suspend fun onInitialize() {
+		manager.queue.entry.onEach { entry ->
+			val continued = session?.entry?.mediaStream?.let { it == state.endedMediaStream.value } == true
+			endSession()
+			if (entry != null) startSession(entry, continued)
+		}.launchIn(coroutineScope + Dispatchers.Main)
+
+		manager.getService<MediaStreamService>()?.resolutions?.onEach { resolution ->
+			onResolution(resolution)
+		}?.launchIn(coroutineScope + Dispatchers.Main)
+
+		manager.backendService.addListener(object : PlayerBackendEventListener {
+			override fun onPlayStateChange(state: PlayState) {
+				if (state == PlayState.PLAYING) onPlaying()
+			}
+
+			override fun onVideoSizeChange(width: Int, height: Int) = Unit
+			override fun onMediaStreamEnd(mediaStream: PlayableMediaStream) = Unit
+
+			override fun onBufferingChange(buffering: Boolean) {
+				if (buffering) onBufferingStart() else onBufferingEnd()
+			}
+
+			override fun onSeek(position: Duration) {
+				val session = session ?: return
+				// Buffering caused by seeking is not a rebuffer
+				session.rebufferStart = null
+				session.seekStart = timeSource.markNow()
+			}
+		})
+	}
+
+	private fun startSession(entry: QueueEntry, continued: Boolean) {
+		session = Session(entry, timeSource.markNow()).apply {
+			pendingResolverDurations.remove(entry)?.let(resolverDurations::putAll)
+
+			// The backend continues with the prepared entry without a new playing state when it
+			// ended the previous entry without a gap
+			if (continued && state.playState.value == PlayState.PLAYING) startupLatency = Duration.ZERO
+		}
+		publish()
+	}
+
+	private fun endSession() {
+		val session = session ?: return
+		this.session = null
+
+		session.rebufferStart?.let { session.rebuffers += it.elapsedNow() }
+		val metrics = session.toMetrics()
+
+		_metrics.value = _metrics.value.let { current ->
+			current.copy(
+				currentSession = null,
+				sessionCount = current.sessionCount + 1,
+				startupLatency = when {
+					metrics.conversionMethod == null || metrics.startupLatency == null -> current.startupLatency
+					else -> current.startupLatency + (metrics.conversionMethod to
+						(current.startupLatency[metrics.conversionMethod] ?: DurationStatistics.EMPTY) + metrics.startupLatency)
+				},
+				resolverDurations = current.resolverDurations + metrics.resolverDurations.mapValues { (resolver, duration) ->
+					(current.resolverDurations[resolver] ?: DurationStatistics.EMPTY) + duration
+				},
+				rebuffers = current.rebuffers + metrics.rebuffers,
+				seekLatency = current.seekLatency + metrics.seekLatency,
+			)
+		}
+
+		if (log != null) coroutineScope.launch {
+			runCatching { log.append(metrics.toLogLine()) }.onFailure { err ->
+				Timber.w(err, "Failed to write playback metrics")
+			}
+		}
+	}
+
+	private fun onResolution(resolution: MediaStreamResolution) {
+		val resolver = resolution.resolver::class.simpleName ?: return
+		val durations = session?.takeIf { it.entry == resolution.entry }?.resolverDurations
+			?: pendingResolverDurations.getOrPut(resolution.entry) { mutableMapOf() }
+
+		durations[resolver] = (durations[resolver] ?: Duration.ZERO) + resolution.duration
+		publish()
+	}
+
+	private fun onPlaying() {
+		val session = session ?: return
+		if (session.startupLatency == null) {
+			session.startupLatency = session.start.elapsedNow()
+			publish()
+		}
+	}
+
+	private fun onBufferingStart() {
+		val session = session ?: return
+		// Buffering before the first playing state is part of the startup latency
+		if (session.startupLatency == null) return
+
+		// Buffering right after seeking is part of the seek latency
+		val seekStart = session.seekStart
+		if (seekStart != null && seekStart.elapsedNow() <= SEEK_BUFFERING_WINDOW) return
+
+		session.seekStart = null
+		session.rebufferStart = timeSource.markNow()
+	}
+
+	private fun onBufferingEnd() {
+		val session = session ?: return
+
+		session.rebufferStart?.let { start ->
+			session.rebuffers += start.elapsedNow()
+			session.rebufferStart = null
+		}
+
+		session.seekStart?.let { start ->
+			session.seekLatency += start.elapsedNow()
+			session.seekStart = null
+		}
+
+		publish()
+	}
+
+	private fun publish() {
+		_metrics.value = _metrics.value.copy(currentSession = session?.toMetrics())
+	}
+
+	private fun PlaybackSessionMetrics.toLogLine() = buildList {
+		add("time=${System.currentTimeMillis()}")
+		add("media=$mediaId")
+		add("method=$conversionMethod")
+		add("startup=${startupLatency?.inWholeMilliseconds}ms")
+		resolverDurations.forEach { (resolver, duration) -> add("$resolver=${duration.inWholeMilliseconds}ms") }
+		add("rebuffers=${rebuffers.count}/${rebuffers.total.inWholeMilliseconds}ms")
+		add("seeks=${seekLatency.count}/${seekLatency.average.inWholeMilliseconds}ms")
+	}.joinToString(" ")
+}
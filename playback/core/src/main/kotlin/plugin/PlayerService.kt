@@ -1,5 +1,6 @@
 package org.jellyfin.playback.core.plugin
 
+import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.launch
@@ -12,11 +13,11 @@ abstract class PlayerService {
 	private lateinit var _job: Job
 	private lateinit var _coroutineScope: CoroutineScope
 
-	internal fun initialize(manager: PlaybackManager, state: PlayerState, job: Job) {
+	internal fun initialize(manager: PlaybackManager, state: PlayerState, job: Job, dispatcher: CoroutineDispatcher) {
 		_manager = manager
 		_state = state
 		_job = job
-		_coroutineScope = CoroutineScope(_job)
+		_coroutineScope = CoroutineScope(_job + dispatcher)
 
 		_coroutineScope.launch {
 			onInitialize()
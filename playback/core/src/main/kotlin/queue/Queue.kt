@@ -1,5 +1,6 @@
 package org.jellyfin.playback.core.queue
 
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.StateFlow
 import org.jellyfin.playback.core.queue.supplier.QueueSupplier
 
@@ -10,6 +11,7 @@ interface Queue {
 
 	/**
 	 * Get an estimated size of the queue. This may be off when the used suppliers are guessing their size.
+	 * Changes are applied asynchronously so the size may not include a supplier that was just added.
 	 */
 	val estimatedSize: Int
 
@@ -23,6 +25,18 @@ interface Queue {
 	 */
 	val entry: StateFlow<QueueEntry?>
 
+	/**
+	 * Snapshot of the queue state, updated after each change to the queue.
+	 */
+	val snapshot: StateFlow<QueueSnapshot>
+
+	/**
+	 * Flow of the entries from [start] up to [size] entries, emitted again when the [snapshot]
+	 * changes. Only the entries in the window are supplied, entries that are not used for playback
+	 * are supplied without waiting for other changes to the queue.
+	 */
+	fun getWindow(start: Int, size: Int): Flow<QueueWindow>
+
 	/**
 	 * Add a supplier of queue items to the end of the queue. Will automatically fetch the first item if there is no current entry.
 	 */
@@ -1,9 +1,17 @@
 package org.jellyfin.playback.core.queue
 
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.launch
 import org.jellyfin.playback.core.PlaybackManager
@@ -17,20 +25,48 @@ import org.jellyfin.playback.core.queue.order.DefaultOrderIndexProvider
 import org.jellyfin.playback.core.queue.order.OrderIndexProvider
 import org.jellyfin.playback.core.queue.order.RandomOrderIndexProvider
 import org.jellyfin.playback.core.queue.order.ShuffleOrderIndexProvider
+import org.jellyfin.playback.core.queue.supplier.PagedQueueSupplier
 import org.jellyfin.playback.core.queue.supplier.QueueSupplier
+import timber.log.Timber
 import kotlin.math.max
+import kotlin.math.min
+import kotlin.time.Duration
 
+/**
+ * Queue implementation where all changes are applied in order by a single writer coroutine. The
+ * state is published as [snapshot] after each change so reads never need to wait for the writer.
+ */
 class QueueService internal constructor() : PlayerService(), Queue {
+	private class Change(val readOnly: Boolean, val body: suspend () -> Unit)
+
+	// All access to the mutable state below happens in the writer
+	private val changes = Channel<Change>(Channel.UNLIMITED)
+	// Set when entries are supplied, which changes the snapshot during read-only changes
+	private var entriesChanged = false
+
 	private val suppliers = mutableListOf<QueueSupplier>()
-	private var currentSupplierIndex = 0
-	private var currentSupplierItemIndex = 0
-	private val fetchedItems: MutableList<QueueEntry> = mutableListOf()
+	private val initializedSuppliers = mutableSetOf<QueueSupplier>()
+	// Corrected sizes for suppliers that returned less items than they reported
+	private val supplierSizes = mutableMapOf<QueueSupplier, Int>()
+	private var suppliedSize = 0
+
+	// Most recently used entries, evicted entries are supplied again when needed
+	private val entries = LinkedHashMap<Int, QueueEntry>(16, 0.75f, true)
 
 	private var defaultOrderIndexProvider = DefaultOrderIndexProvider()
 	private var orderIndexProvider: OrderIndexProvider = defaultOrderIndexProvider
 	private var currentQueueIndicesPlayed = mutableListOf<Int>()
 
-	override val estimatedSize get() = max(fetchedItems.size, suppliers.sumOf { it.size })
+	// Read-only copies of the supplied entries and suppliers for windows, published by the writer
+	@Volatile
+	private var publishedEntries: Map<Int, QueueEntry> = emptyMap()
+	@Volatile
+	private var publishedSuppliers: List<Pair<QueueSupplier, Int>> = emptyList()
+
+	private val _snapshot = MutableStateFlow(QueueSnapshot.EMPTY)
+	override val snapshot: StateFlow<QueueSnapshot> get() = _snapshot.asStateFlow()
+
+	override val estimatedSize get() = _snapshot.value.estimatedSize
 
 	private val _entryIndex = MutableStateFlow(Queue.INDEX_NONE)
 	override val entryIndex: StateFlow<Int> get() = _entryIndex.asStateFlow()
@@ -39,12 +75,30 @@ class QueueService internal constructor() : PlayerService(), Queue {
 	override val entry: StateFlow<QueueEntry?> get() = _entry.asStateFlow()
 
 	override suspend fun onInitialize() {
+		coroutineScope.launch {
+			for (change in changes) {
+				try {
+					change.body()
+				} catch (err: CancellationException) {
+					throw err
+				} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+					// Keep the writer running, otherwise all following changes would wait forever
+					Timber.e(err, "Failed to apply queue change")
+				}
+
+				// Peeking happens constantly, only publish when it supplied entries
+				if (!change.readOnly || entriesChanged) publishSnapshot()
+			}
+		}
+
 		// Reset calculated next-up indices when playback order changes
 		state.playbackOrder.onEach { playbackOrder ->
-			orderIndexProvider = when (playbackOrder) {
-				PlaybackOrder.DEFAULT -> defaultOrderIndexProvider
-				PlaybackOrder.RANDOM -> RandomOrderIndexProvider()
-				PlaybackOrder.SHUFFLE -> ShuffleOrderIndexProvider()
+			writeAsync {
+				orderIndexProvider = when (playbackOrder) {
+					PlaybackOrder.DEFAULT -> defaultOrderIndexProvider
+					PlaybackOrder.RANDOM -> RandomOrderIndexProvider()
+					PlaybackOrder.SHUFFLE -> ShuffleOrderIndexProvider()
+				}
 			}
 		}.launchIn(coroutineScope)
 
@@ -52,6 +106,8 @@ class QueueService internal constructor() : PlayerService(), Queue {
 		manager.backendService.addListener(object : PlayerBackendEventListener {
 			override fun onPlayStateChange(state: PlayState) = Unit
 			override fun onVideoSizeChange(width: Int, height: Int) = Unit
+			override fun onBufferingChange(buffering: Boolean) = Unit
+			override fun onSeek(position: Duration) = Unit
 			override fun onMediaStreamEnd(mediaStream: PlayableMediaStream) {
 				coroutineScope.launch {
 					next(usePlaybackOrder = true, useRepeatMode = true)
@@ -60,49 +116,171 @@ class QueueService internal constructor() : PlayerService(), Queue {
 		})
 	}
 
+	// Writer
+
+	private suspend fun <T> write(readOnly: Boolean = false, body: suspend () -> T): T {
+		val result = CompletableDeferred<T>()
+		changes.send(Change(readOnly) { result.completeWith(runCatching { body() }) })
+		return result.await()
+	}
+
+	private suspend fun <T> read(body: suspend () -> T): T = write(readOnly = true, body)
+
+	private fun writeAsync(body: suspend () -> Unit) {
+		changes.trySend(Change(readOnly = false, body))
+	}
+
+	private fun publishSnapshot() {
+		entriesChanged = false
+		publishedEntries = entries.toMap()
+		publishedSuppliers = suppliers.map { supplier -> supplier to (supplierSizes[supplier] ?: supplier.size) }
+
+		_snapshot.value = QueueSnapshot(
+			entryIndex = _entryIndex.value,
+			estimatedSize = calculateEstimatedSize(),
+			playedIndices = currentQueueIndicesPlayed.toSet(),
+		)
+	}
+
+	private fun calculateEstimatedSize() = max(suppliedSize, suppliers.sumOf { supplierSizes[it] ?: it.size })
+
 	// Entry management
 
-	override fun addSupplier(supplier: QueueSupplier) {
+	override fun addSupplier(supplier: QueueSupplier) = writeAsync {
+		if (supplier is PagedQueueSupplier) supplier.prefetchScope = coroutineScope
 		suppliers.add(supplier)
 
-		if (_entryIndex.value == Queue.INDEX_NONE) {
-			coroutineScope.launch { setIndex(0) }
-		}
+		if (_entryIndex.value == Queue.INDEX_NONE) setIndexInternal(0, false)
 	}
 
 	private suspend fun getOrSupplyItem(index: Int): QueueEntry? {
-		// Fetch additional items from suppliers until we reach the desired index
-		while (index >= fetchedItems.size) {
-			// No more suppliers to try
-			if (currentSupplierIndex >= suppliers.size) break
-
-			val supplier = suppliers[currentSupplierIndex]
-			val nextItem = supplier.getItem(currentSupplierItemIndex)
-
-			if (nextItem != null) {
-				// Add item to cache and icnrease item index
-				fetchedItems.add(nextItem)
-				currentSupplierItemIndex++
+		if (index < 0) return null
+		entries[index]?.let { return it }
+
+		// Supplying might also correct the supplier sizes when it fails
+		entriesChanged = true
+		val entry = supplyItem(index) ?: return null
+		entries[index] = entry
+		trimEntries(index)
+		suppliedSize = max(suppliedSize, index + 1)
+
+		return entry
+	}
+
+	private suspend fun supplyItem(index: Int): QueueEntry? {
+		// Find the supplier containing the desired index
+		var supplierOffset = 0
+		for (supplier in suppliers.toList()) {
+			// Suppliers might not know their size until the first item is fetched
+			if (initializedSuppliers.add(supplier) && supplier.getItem(0) == null) supplierSizes[supplier] = 0
+
+			val supplierSize = supplierSizes[supplier] ?: supplier.size
+			val supplierItemIndex = index - supplierOffset
+
+			if (supplierItemIndex < supplierSize) {
+				val item = supplier.getItem(supplierItemIndex)
+				if (item != null) return item
+
+				// Supplier is exhausted earlier than reported, continue with the next supplier
+				supplierSizes[supplier] = supplierItemIndex
+				supplierOffset += supplierItemIndex
 			} else {
-				// Move to the next supplier if current one is exhausted
-				currentSupplierIndex++
-				currentSupplierItemIndex = 0
+				supplierOffset += supplierSize
 			}
 		}
 
-		// Return item or null if not found
-		return if (index < fetchedItems.size) fetchedItems[index]
-		else null
+		// Not found
+		return null
 	}
 
-	override fun clear() {
+	private fun trimEntries(suppliedIndex: Int) {
+		if (entries.size <= manager.options.queueWindowSize) return
+
+		// Always keep the supplied, current and adjacent entries, supplying them again would create new
+		// instances without the elements set by other services
+		val currentIndex = _entryIndex.value
+		val pinnedIndices = buildSet {
+			add(suppliedIndex)
+			if (currentIndex != Queue.INDEX_NONE) {
+				add(currentIndex - 1)
+				add(currentIndex)
+				add(currentIndex + 1)
+				addAll(getNextIndices(1, usePlaybackOrder = true, useRepeatMode = false))
+			}
+			currentQueueIndicesPlayed.lastOrNull()?.let(::add)
+		}
+
+		val iterator = entries.keys.iterator()
+		while (entries.size > manager.options.queueWindowSize && iterator.hasNext()) {
+			if (iterator.next() !in pinnedIndices) iterator.remove()
+		}
+	}
+
+	override fun clear() = writeAsync {
+		for (supplier in suppliers) {
+			if (supplier is PagedQueueSupplier) supplier.prefetchScope = null
+		}
 		suppliers.clear()
-		currentSupplierIndex = 0
-		currentSupplierItemIndex = 0
-		fetchedItems.clear()
+		initializedSuppliers.clear()
+		supplierSizes.clear()
+		suppliedSize = 0
+		entries.clear()
 		_entry.value = null
 		_entryIndex.value = Queue.INDEX_NONE
 		currentQueueIndicesPlayed.clear()
+		orderIndexProvider.reset()
+	}
+
+	// Snapshots
+
+	@OptIn(ExperimentalCoroutinesApi::class)
+	override fun getWindow(start: Int, size: Int): Flow<QueueWindow> {
+		require(start >= 0) { "Start must not be negative" }
+		require(size > 0) { "Size must be positive" }
+
+		return flow {
+			// Entries supplied for this window only, these are not added to the playback entries so
+			// paging through the queue does not evict the entries needed for playback
+			val windowEntries = mutableMapOf<Int, QueueEntry>()
+			var windowSuppliers = emptyList<Pair<QueueSupplier, Int>>()
+
+			emitAll(snapshot.mapLatest { snapshot ->
+				val suppliedEntries = publishedEntries
+				val suppliers = publishedSuppliers
+				if (suppliers != windowSuppliers) {
+					windowEntries.clear()
+					windowSuppliers = suppliers
+				}
+
+				val end = min(start + size, snapshot.estimatedSize)
+				val items = (start until end).mapNotNull { index ->
+					val entry = suppliedEntries[index]
+						?: windowEntries[index]
+						?: supplyWindowItem(index, suppliers)?.also { windowEntries[index] = it }
+						?: return@mapNotNull null
+
+					QueueWindowItem(
+						index = index,
+						mediaId = entry.metadata.mediaId,
+						played = index in snapshot.playedIndices,
+						current = index == snapshot.entryIndex,
+					)
+				}
+
+				QueueWindow(snapshot, start, items)
+			})
+		}
+	}
+
+	private suspend fun supplyWindowItem(index: Int, suppliers: List<Pair<QueueSupplier, Int>>): QueueEntry? {
+		var supplierOffset = 0
+		for ((supplier, supplierSize) in suppliers) {
+			val supplierItemIndex = index - supplierOffset
+			if (supplierItemIndex < supplierSize) return supplier.getItem(supplierItemIndex)
+			supplierOffset += supplierSize
+		}
+
+		return null
 	}
 
 	// Preloading
@@ -110,6 +288,7 @@ class QueueService internal constructor() : PlayerService(), Queue {
 	private fun getNextIndices(amount: Int, usePlaybackOrder: Boolean, useRepeatMode: Boolean): Collection<Int> {
 		val provider = if (usePlaybackOrder) orderIndexProvider else defaultOrderIndexProvider
 		val repeatMode = if (useRepeatMode) state.repeatMode.value else RepeatMode.NONE
+		val estimatedSize = calculateEstimatedSize()
 
 		return when (repeatMode) {
 			RepeatMode.NONE -> provider.provideIndices(amount, estimatedSize, currentQueueIndicesPlayed, entryIndex.value)
@@ -125,12 +304,14 @@ class QueueService internal constructor() : PlayerService(), Queue {
 
 	// Jumping
 
-	override suspend fun previous(): QueueEntry? = currentQueueIndicesPlayed.removeLastOrNull()?.let {
-		setIndex(it)
+	override suspend fun previous(): QueueEntry? = write {
+		currentQueueIndicesPlayed.removeLastOrNull()?.let {
+			setIndexInternal(it, false)
+		}
 	}
 
-	override suspend fun next(usePlaybackOrder: Boolean, useRepeatMode: Boolean): QueueEntry? {
-		val index = getNextIndices(1, usePlaybackOrder, useRepeatMode).firstOrNull() ?: return null
+	override suspend fun next(usePlaybackOrder: Boolean, useRepeatMode: Boolean): QueueEntry? = write {
+		val index = getNextIndices(1, usePlaybackOrder, useRepeatMode).firstOrNull() ?: return@write null
 		if (usePlaybackOrder) {
 			// Automatically set repeat mode back to none when using the ONCE option
 			if (state.repeatMode.value == RepeatMode.REPEAT_ENTRY_ONCE && index == this._entryIndex.value) {
@@ -140,10 +321,14 @@ class QueueService internal constructor() : PlayerService(), Queue {
 			}
 		}
 
-		return setIndex(index, true)
+		setIndexInternal(index, true)
+	}
+
+	override suspend fun setIndex(index: Int, saveHistory: Boolean): QueueEntry? = write {
+		setIndexInternal(index, saveHistory)
 	}
 
-	override suspend fun setIndex(index: Int, saveHistory: Boolean): QueueEntry? {
+	private suspend fun setIndexInternal(index: Int, saveHistory: Boolean): QueueEntry? {
 		if (index < 0) return null
 
 		// Save previous index
@@ -161,8 +346,8 @@ class QueueService internal constructor() : PlayerService(), Queue {
 
 	// Peeking
 
-	override suspend fun peekPrevious(): QueueEntry? = currentQueueIndicesPlayed.lastOrNull()?.let {
-		getOrSupplyItem(it)
+	override suspend fun peekPrevious(): QueueEntry? = read {
+		currentQueueIndicesPlayed.lastOrNull()?.let { getOrSupplyItem(it) }
 	}
 
 	override suspend fun peekNext(
@@ -174,8 +359,8 @@ class QueueService internal constructor() : PlayerService(), Queue {
 		amount: Int,
 		usePlaybackOrder: Boolean,
 		useRepeatMode: Boolean,
-	): Collection<QueueEntry> {
-		return getNextIndices(amount, usePlaybackOrder, useRepeatMode)
+	): Collection<QueueEntry> = read {
+		getNextIndices(amount, usePlaybackOrder, useRepeatMode)
 			.mapNotNull { index -> getOrSupplyItem(index) }
 	}
 }
@@ -0,0 +1,44 @@
+package org.jellyfin.playback.core.queue
+
+/**
+ * Immutable snapshot of the queue state. Snapshots are cheap to create and compare, entries are not
+ * included and can be read in pages using [Queue.getWindow].
+ */
+data class QueueSnapshot(
+	/**
+	 * Index of the currently playing entry, or [Queue.INDEX_NONE] if none.
+	 */
+	val entryIndex: Int,
+	/**
+	 * Estimated size of the queue, see [Queue.estimatedSize].
+	 */
+	val estimatedSize: Int,
+	/**
+	 * Indices of the entries that were played before the current entry.
+	 */
+	val playedIndices: Set<Int>,
+) {
+	companion object {
+		val EMPTY = QueueSnapshot(
+			entryIndex = Queue.INDEX_NONE,
+			estimatedSize = 0,
+			playedIndices = emptySet(),
+		)
+	}
+}
+
+/**
+ * A range of queue entries starting at [start], created from [snapshot].
+ */
+data class QueueWindow(
+	val snapshot: QueueSnapshot,
+	val start: Int,
+	val items: List<QueueWindowItem>,
+)
+
+data class QueueWindowItem(
+	val index: Int,
+	val mediaId: String?,
+	val played: Boolean,
+	val current: Boolean,
+)
@@ -1,11 +1,42 @@
 package org.jellyfin.playback.core.queue.order
 
-import kotlin.math.min
+import kotlin.math.max
+import kotlin.random.Random
 
-internal class ShuffleOrderIndexProvider : OrderIndexProvider {
-	private val nextIndices = mutableListOf<Int>()
+/**
+ * Shuffles the queue using a lazily materialized Fisher-Yates shuffle. Positions in the shuffled
+ * order are only drawn when they are needed so providing and using indices is O(1) amortized,
+ * regardless of the queue size.
+ *
+ * The played indices are synced on every call. They are expected to change at the end only, like
+ * the history of the queue, so syncing them is O(1) as well. Indices that are no longer played, for
+ * example after going back to a previous entry, are provided again.
+ */
+internal class ShuffleOrderIndexProvider(
+	private val random: Random = Random.Default,
+) : OrderIndexProvider {
+	// Permutation of all queue indices, only positions before shuffledSize are shuffled
+	private var order = IntArray(0)
+	private var orderSize = 0
+	private var shuffledSize = 0
 
-	override fun reset() = nextIndices.clear()
+	// Position in the order of the next index to play
+	private var cursor = 0
+
+	// Copy of the last played indices and current index, indices that are in neither are provided
+	private val syncedPlayedIndices = ArrayList<Int>()
+	private var playCounts = IntArray(0)
+	private var syncedCurrentIndex = -1
+
+	override fun reset() {
+		order = IntArray(0)
+		orderSize = 0
+		shuffledSize = 0
+		cursor = 0
+		syncedPlayedIndices.clear()
+		playCounts = IntArray(0)
+		syncedCurrentIndex = -1
+	}
 
 	override fun provideIndices(
 		amount: Int,
@@ -13,27 +44,92 @@ internal class ShuffleOrderIndexProvider : OrderIndexProvider {
 		playedIndices: Collection<Int>,
 		currentIndex: Int,
 	): Collection<Int> {
-		val remainingItemsSize = size - playedIndices.size
-		return if (remainingItemsSize <= 0) {
-			emptyList()
-		} else {
-			val remainingIndices = (0..size).filterNot {
-				it in playedIndices || it in nextIndices
-			}
-
-			List(min(amount, remainingItemsSize)) { i ->
-				if (i < nextIndices.lastIndex) {
-					nextIndices[i]
-				} else {
-					val index = remainingIndices.random()
-					nextIndices.add(index)
-					index
-				}
-			}
+		grow(size)
+		sync(playedIndices, currentIndex)
+
+		val indices = ArrayList<Int>(amount)
+		var position = cursor
+		while (indices.size < amount) {
+			val index = getIndexAt(position++) ?: break
+			if (index < size && !isPlayed(index)) indices.add(index)
 		}
+		return indices
 	}
 
 	override fun useNextIndex() {
-		nextIndices.removeFirst()
+		// Skip indices that were played while they were waiting in the order
+		while (true) {
+			val index = getIndexAt(cursor) ?: return
+			cursor++
+
+			if (!isPlayed(index)) return
+		}
+	}
+
+	private fun isPlayed(index: Int) = index == syncedCurrentIndex || (index < playCounts.size && playCounts[index] > 0)
+
+	private fun sync(playedIndices: Collection<Int>, currentIndex: Int) {
+		val played = playedIndices as? List<Int> ?: playedIndices.toList()
+
+		// Find the first changed position from the end, the history only changes there
+		var common = minOf(syncedPlayedIndices.size, played.size)
+		while (common > 0 && syncedPlayedIndices[common - 1] != played[common - 1]) common--
+
+		val previousCurrentIndex = syncedCurrentIndex
+		syncedCurrentIndex = currentIndex
+
+		while (syncedPlayedIndices.size > common) {
+			val index = syncedPlayedIndices.removeAt(syncedPlayedIndices.lastIndex)
+			if (index < 0) continue
+
+			playCounts[index]--
+			if (!isPlayed(index)) restore(index)
+		}
+
+		for (position in common until played.size) {
+			val index = played[position]
+			syncedPlayedIndices.add(index)
+			if (index < 0) continue
+
+			if (index >= playCounts.size) playCounts = playCounts.copyOf(max(index + 1, playCounts.size * 2))
+			playCounts[index]++
+		}
+
+		if (previousCurrentIndex >= 0 && !isPlayed(previousCurrentIndex)) restore(previousCurrentIndex)
+	}
+
+	// Move an index that was already used back to the cursor so it is provided next
+	private fun restore(index: Int) {
+		for (position in cursor - 1 downTo 0) {
+			if (order[position] != index) continue
+
+			order[position] = order[cursor - 1]
+			order[cursor - 1] = index
+			cursor--
+			return
+		}
+	}
+
+	private fun grow(newSize: Int) {
+		if (newSize <= orderSize) return
+
+		if (newSize > order.size) order = order.copyOf(max(newSize, order.size * 2))
+		for (index in orderSize until newSize) order[index] = index
+		orderSize = newSize
+	}
+
+	private fun getIndexAt(position: Int): Int? {
+		if (position >= orderSize) return null
+
+		// Draw the next positions from the remaining unshuffled indices
+		while (shuffledSize <= position) {
+			val swapPosition = random.nextInt(shuffledSize, orderSize)
+			val index = order[swapPosition]
+			order[swapPosition] = order[shuffledSize]
+			order[shuffledSize] = index
+			shuffledSize++
+		}
+
+		return order[position]
 	}
 }
@@ -1,30 +1,159 @@
 package org.jellyfin.playback.core.queue.supplier
 
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
 import org.jellyfin.playback.core.queue.QueueEntry
+import timber.log.Timber
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.TimeSource
 
 abstract class PagedQueueSupplier(
 	private val pageSize: Int = 10,
+	private val maxCachedPages: Int = 10,
+	private val prefetchDistance: Int = pageSize / 2,
 ) : QueueSupplier {
 	companion object {
-		const val MAX_SIZE = 100
+		private const val MAX_PAGES_PER_LOAD = 5
+		private val TARGET_LOAD_DURATION = 500.milliseconds
 	}
 
-	private val buffer: MutableList<QueueEntry> = mutableListOf()
+	private class PageLoad(val firstPageIndex: Int, val pageCount: Int) {
+		// Completes with null when the load was cancelled so other callers load the pages again
+		val result = CompletableDeferred<Map<Int, List<QueueEntry>>?>()
+	}
+
+	private val lock = Mutex()
+
+	// Most recently used pages, evicted pages are loaded again when requested
+	private val pages = object : LinkedHashMap<Int, List<QueueEntry>>(maxCachedPages, 0.75f, true) {
+		override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, List<QueueEntry>>?) =
+			size > maxCachedPages
+	}
+	private val pendingLoads = mutableMapOf<Int, PageLoad>()
+	private var lastPageIndex = Int.MAX_VALUE
+
+	// Amount of pages requested at once, adapts to the observed load duration
+	private val maxPagesPerLoad = min(MAX_PAGES_PER_LOAD, maxCachedPages / 2).coerceAtLeast(1)
+	private var pagesPerLoad = 1
+
+	/**
+	 * The scope used to load pages in the background. Set by the queue when the supplier is added.
+	 */
+	internal var prefetchScope: CoroutineScope? = null
 
 	override suspend fun getItem(index: Int): QueueEntry? {
-		require(index in 0 until MAX_SIZE)
+		require(index >= 0)
+
+		val pageIndex = index / pageSize
+		val page = getPage(pageIndex)
+
+		// Load the next page in the background when getting close to the end of the current page
+		val prefetchPageIndex = (index + prefetchDistance) / pageSize
+		if (prefetchPageIndex != pageIndex) prefetchPage(prefetchPageIndex)
+
+		return page.getOrNull(index % pageSize)
+	}
+
+	private suspend fun getPage(pageIndex: Int): List<QueueEntry> {
+		while (true) {
+			var isOwner = false
+			val load = lock.withLock {
+				pages[pageIndex]?.let { return it }
+				if (pageIndex > lastPageIndex) return emptyList()
+
+				// Share the in-flight load when the page is already requested
+				pendingLoads[pageIndex] ?: createLoad(pageIndex).also { isOwner = true }
+			}
+
+			if (isOwner) executeLoad(load)
+			val loadedPages = load.result.await() ?: continue
+			return loadedPages[pageIndex].orEmpty()
+		}
+	}
+
+	private fun createLoad(firstPageIndex: Int): PageLoad {
+		var pageCount = 1
+		while (pageCount < pagesPerLoad) {
+			val pageIndex = firstPageIndex + pageCount
+			if (pageIndex > lastPageIndex || pageIndex in pendingLoads || pages.containsKey(pageIndex)) break
+			pageCount++
+		}
+
+		val load = PageLoad(firstPageIndex, pageCount)
+		repeat(pageCount) { i -> pendingLoads[firstPageIndex + i] = load }
+		return load
+	}
+
+	private suspend fun executeLoad(load: PageLoad) {
+		try {
+			val start = TimeSource.Monotonic.markNow()
+			val items = loadPage(load.firstPageIndex * pageSize, load.pageCount * pageSize).toList()
+			val loadDuration = start.elapsedNow()
+
+			val loadedPages = List(load.pageCount) { i ->
+				load.firstPageIndex + i to items.drop(i * pageSize).take(pageSize)
+			}.toMap()
+
+			lock.withLock {
+				// A partial result means the end is reached
+				if (items.size < load.pageCount * pageSize) {
+					lastPageIndex = if (items.isEmpty()) load.firstPageIndex - 1
+					else load.firstPageIndex + (items.size - 1) / pageSize
+				}
 
-		var page: Collection<QueueEntry>
-		var pageOffset = buffer.size
-		do {
-			if (buffer.size > index) return buffer[index]
-			page = loadPage(pageOffset, pageSize)
-			pageOffset += page.size
+				pages.putAll(loadedPages)
+				removePendingLoad(load)
+				adaptPagesPerLoad(loadDuration)
+			}
+
+			load.result.complete(loadedPages)
+		} catch (err: CancellationException) {
+			// Only the caller that started the load is cancelled, the others load the pages again
+			withContext(NonCancellable) { lock.withLock { removePendingLoad(load) } }
+			load.result.complete(null)
+			throw err
+		} catch (err: Throwable) {
+			withContext(NonCancellable) { lock.withLock { removePendingLoad(load) } }
+			load.result.completeExceptionally(err)
+			throw err
+		}
+	}
+
+	private fun removePendingLoad(load: PageLoad) {
+		repeat(load.pageCount) { i -> pendingLoads.remove(load.firstPageIndex + i) }
+	}
+
+	private fun adaptPagesPerLoad(loadDuration: Duration) {
+		pagesPerLoad = when {
+			// Fast responses allow requesting more pages at once to reduce the amount of requests
+			loadDuration < TARGET_LOAD_DURATION / 2 -> min(pagesPerLoad * 2, maxPagesPerLoad)
+			// Slow responses should be kept small so the requested item is available sooner
+			loadDuration > TARGET_LOAD_DURATION * 2 -> max(pagesPerLoad / 2, 1)
+			else -> pagesPerLoad
+		}
+	}
 
-			for (item in page) buffer.add(item)
-		} while (page.isNotEmpty())
+	private suspend fun prefetchPage(pageIndex: Int) {
+		val scope = prefetchScope ?: return
+		val shouldLoad = lock.withLock {
+			pageIndex <= lastPageIndex && !pages.containsKey(pageIndex) && pageIndex !in pendingLoads
+		}
+		if (!shouldLoad) return
 
-		return null
+		scope.launch {
+			runCatching { getPage(pageIndex) }.onFailure { err ->
+				Timber.w(err, "Failed to prefetch page $pageIndex")
+			}
+		}
 	}
 
 	abstract suspend fun loadPage(offset: Int, size: Int): Collection<QueueEntry>
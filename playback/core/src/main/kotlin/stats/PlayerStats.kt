@@ -0,0 +1,50 @@
+package org.jellyfin.playback.core.stats
+
+import kotlin.time.Duration
+
+/**
+ * Diagnostic statistics of the player backend, used to find the cause of playback issues.
+ */
+data class PlayerStats(
+	val videoFormat: String?,
+	val audioFormat: String?,
+	val videoDecoder: PlayerDecoderInfo?,
+	val audioDecoder: PlayerDecoderInfo?,
+	/**
+	 * Amount of video frames dropped for the current stream.
+	 */
+	val droppedFrames: Int,
+	/**
+	 * Duration of media buffered ahead of the current position.
+	 */
+	val bufferHealth: Duration,
+	/**
+	 * The estimated bandwidth in bits per second or null when unknown.
+	 */
+	val bandwidthEstimate: Long?,
+	/**
+	 * Amount of times playback stalled to buffer for the current stream, excluding seeks.
+	 */
+	val rebuffers: Int,
+) {
+	companion object {
+		val EMPTY = PlayerStats(
+			videoFormat = null,
+			audioFormat = null,
+			videoDecoder = null,
+			audioDecoder = null,
+			droppedFrames = 0,
+			bufferHealth = Duration.ZERO,
+			bandwidthEstimate = null,
+			rebuffers = 0,
+		)
+	}
+}
+
+data class PlayerDecoderInfo(
+	val name: String,
+	/**
+	 * Whether the decoder is hardware accelerated or null when unknown.
+	 */
+	val hardwareAccelerated: Boolean?,
+)
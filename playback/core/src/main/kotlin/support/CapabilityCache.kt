@@ -0,0 +1,61 @@
+package org.jellyfin.playback.core.support
+
+import android.content.Context
+import android.content.SharedPreferences
+import android.os.Build
+import androidx.core.content.pm.PackageInfoCompat
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Persistent cache for device capabilities that are expensive to query, like decoder support. The
+ * values are stored in shared preferences and invalidated when the device firmware
+ * ([Build.FINGERPRINT]) or the app version changes.
+ */
+class CapabilityCache(
+	private val context: Context,
+	name: String,
+) {
+	private val preferencesName = "capabilities_$name"
+	private val values = ConcurrentHashMap<String, String>()
+
+	// Loaded on first use to avoid disk reads when constructed
+	private val preferences: SharedPreferences by lazy {
+		val preferences = context.getSharedPreferences(preferencesName, Context.MODE_PRIVATE)
+		val version = getVersion()
+
+		if (preferences.getString(VERSION_KEY, null) != version) {
+			preferences.edit().clear().putString(VERSION_KEY, version).apply()
+		} else {
+			preferences.all.forEach { (key, value) ->
+				if (key != VERSION_KEY && value is String) values[key] = value
+			}
+		}
+
+		preferences
+	}
+
+	private fun getVersion(): String {
+		val packageInfo = context.packageManager.getPackageInfo(context.packageName, 0)
+		return "${Build.FINGERPRINT}/${PackageInfoCompat.getLongVersionCode(packageInfo)}"
+	}
+
+	fun getOrPutString(key: String, compute: () -> String): String {
+		val preferences = preferences
+		values[key]?.let { return it }
+
+		val value = compute()
+		values[key] = value
+		preferences.edit().putString(key, value).apply()
+		return value
+	}
+
+	fun getOrPutInt(key: String, compute: () -> Int): Int =
+		getOrPutString(key) { compute().toString() }.toIntOrNull() ?: compute()
+
+	fun getOrPutBoolean(key: String, compute: () -> Boolean): Boolean =
+		getOrPutString(key) { compute().toString() }.toBooleanStrictOrNull() ?: compute()
+
+	companion object {
+		private const val VERSION_KEY = "__version"
+	}
+}
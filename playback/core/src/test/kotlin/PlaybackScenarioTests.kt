@@ -0,0 +1,119 @@
+package org.jellyfin.playback.core
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContain
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import org.jellyfin.playback.core.mediastream.MediaConversionMethod
+import org.jellyfin.playback.core.mediastream.mediaStream
+import org.jellyfin.playback.core.metrics.PlaybackMetricsService
+import org.jellyfin.playback.core.model.PlayState
+import org.jellyfin.playback.core.queue.metadata
+import org.jellyfin.playback.core.testing.FakeMediaStreamResolver
+import org.jellyfin.playback.core.testing.FakePlayerBackendOptions
+import org.jellyfin.playback.core.testing.FakeQueueSupplier
+import org.jellyfin.playback.core.testing.runPlaybackTest
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.Duration.Companion.seconds
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class PlaybackScenarioTests : FunSpec({
+	test("Plays the first entry after adding a supplier") {
+		runPlaybackTest {
+			queue.addSupplier(FakeQueueSupplier(size = 10))
+			advanceTimeBy(1.seconds)
+
+			state.playState.value shouldBe PlayState.PLAYING
+			backend.currentEntry?.metadata?.mediaId shouldBe "item-0"
+		}
+	}
+
+	test("Prepares the next entry before the current entry ends") {
+		runPlaybackTest {
+			queue.addSupplier(FakeQueueSupplier(size = 10, duration = 1.minutes))
+			advanceTimeBy(40.seconds)
+
+			backend.preparedEntries.map { it.metadata.mediaId } shouldContain "item-1"
+		}
+	}
+
+	test("Continues with the prepared entry without pausing") {
+		runPlaybackTest {
+			val metricsService = PlaybackMetricsService(timeSource = scope.testScheduler.timeSource)
+			manager.addService(metricsService)
+			runCurrent()
+
+			queue.addSupplier(FakeQueueSupplier(size = 3, duration = 1.minutes))
+			advanceTimeBy(1.seconds)
+			val firstEntry = queue.entry.value
+			advanceTimeBy(1.minutes)
+
+			// The backend ended the first entry and continued without buffering
+			state.endedMediaStream.value shouldBe firstEntry?.mediaStream
+			state.playState.value shouldBe PlayState.PLAYING
+			backend.isBuffering shouldBe false
+			backend.playedEntries.map { it.metadata.mediaId } shouldContainExactly listOf("item-0", "item-1")
+			queue.entry.value?.metadata?.mediaId shouldBe "item-1"
+
+			// The session of the next entry starts right away
+			val metrics = metricsService.metrics.value
+			metrics.sessionCount shouldBe 1
+			metrics.rebuffers.count shouldBe 0
+			metrics.currentSession?.mediaId shouldBe "item-1"
+			metrics.currentSession?.startupLatency shouldBe Duration.ZERO
+		}
+	}
+
+	test("Plays through thousands of entries") {
+		runPlaybackTest {
+			queue.addSupplier(FakeQueueSupplier(size = 2_000, duration = 1.minutes))
+			repeat(2_000) { advanceTimeBy(1.minutes) }
+
+			backend.playedEntries.size shouldBe 2_000
+			queue.entry.value?.metadata?.mediaId shouldBe "item-1999"
+		}
+	}
+
+	test("Records the startup latency") {
+		runPlaybackTest(
+			backendOptions = FakePlayerBackendOptions(startLatency = 300.milliseconds),
+			mediaStreamResolvers = listOf(
+				FakeMediaStreamResolver(latency = 200.milliseconds, conversionMethod = MediaConversionMethod.Transcode)
+			),
+		) {
+			val metricsService = PlaybackMetricsService(timeSource = scope.testScheduler.timeSource)
+			manager.addService(metricsService)
+			runCurrent()
+
+			queue.addSupplier(FakeQueueSupplier(size = 2))
+			advanceTimeBy(1.seconds)
+
+			val session = metricsService.metrics.value.currentSession
+			session?.conversionMethod shouldBe MediaConversionMethod.Transcode
+			session?.startupLatency shouldBe 500.milliseconds
+		}
+	}
+
+	test("Records rebuffers after a seek without buffering") {
+		runPlaybackTest(backendOptions = FakePlayerBackendOptions(seekLatency = Duration.ZERO)) {
+			val metricsService = PlaybackMetricsService(timeSource = scope.testScheduler.timeSource)
+			manager.addService(metricsService)
+			runCurrent()
+
+			queue.addSupplier(FakeQueueSupplier(size = 1))
+			advanceTimeBy(1.seconds)
+			state.seek(30.seconds)
+			advanceTimeBy(5.seconds)
+			backend.simulateRebuffer(2.seconds)
+			advanceTimeBy(5.seconds)
+
+			val session = metricsService.metrics.value.currentSession
+			session?.rebuffers?.count shouldBe 1
+			session?.rebuffers?.total shouldBe 2.seconds
+			session?.seekLatency?.count shouldBe 0
+		}
+	}
+})
@@ -0,0 +1,41 @@
+package org.jellyfin.playback.core.bandwidth
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.Duration.Companion.seconds
+import kotlin.time.TestTimeSource
+
+class BandwidthEstimatorTests : FunSpec({
+	test("BandwidthEstimator smooths samples per server") {
+		val estimator = BandwidthEstimator(smoothingFactor = 0.5)
+
+		estimator.addSample("https://demo.jellyfin.org/stable/Videos/1", 1_000_000, 1.seconds)
+		estimator.addSample("https://demo.jellyfin.org/stable/Videos/2", 2_000_000, 1.seconds)
+		estimator.addSample("http://192.168.1.2:8096/Audio/1", 500_000, 1.seconds)
+
+		estimator.getEstimate("https://DEMO.jellyfin.org/stable") shouldBe 12_000_000L
+		estimator.getEstimate("http://192.168.1.2:8096") shouldBe 4_000_000L
+		estimator.getEstimate("http://192.168.1.3:8096") shouldBe null
+	}
+
+	test("BandwidthEstimator ignores outdated estimates") {
+		val timeSource = TestTimeSource()
+		val estimator = BandwidthEstimator(maxAge = 10.minutes, timeSource = timeSource)
+
+		estimator.addSample("https://demo.jellyfin.org", 1_000_000, 1.seconds)
+		timeSource += 11.minutes
+		estimator.getEstimate("https://demo.jellyfin.org") shouldBe null
+
+		// New samples are not smoothed with the outdated estimate
+		estimator.addSample("https://demo.jellyfin.org", 2_000_000, 1.seconds)
+		estimator.getEstimate("https://demo.jellyfin.org") shouldBe 16_000_000L
+	}
+
+	test("BandwidthEstimator ignores small samples") {
+		val estimator = BandwidthEstimator()
+
+		estimator.addSample("https://demo.jellyfin.org", 1_000, 1.seconds)
+		estimator.getEstimate("https://demo.jellyfin.org") shouldBe null
+	}
+})
@@ -0,0 +1,52 @@
+package org.jellyfin.playback.core.element
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+
+class ElementsContainerTests : FunSpec({
+	test("ElementsContainer.getFlow emits the current value") {
+		val container = ElementsContainer()
+		val key = ElementKey<String>("key")
+
+		container.getFlow(key).first() shouldBe null
+		container.put(key, "value")
+		container.getFlow(key).first() shouldBe "value"
+	}
+
+	test("ElementsContainer.getFlow emits every change to the observed key") {
+		val container = ElementsContainer()
+		val key = ElementKey<Int>("key")
+		val values = mutableListOf<Int?>()
+
+		coroutineScope {
+			val job = launch(Dispatchers.Unconfined) { container.getFlow(key).toList(values) }
+			container.put(key, 1)
+			container.put(key, 2)
+			container.remove(key)
+			job.cancel()
+		}
+
+		values shouldBe listOf(null, 1, 2, null)
+	}
+
+	test("ElementsContainer.getFlow ignores changes to other keys") {
+		val container = ElementsContainer()
+		val key = ElementKey<Int>("key")
+		val otherKeys = List(100) { i -> ElementKey<Int>("other$i") }
+		val values = mutableListOf<Int?>()
+
+		coroutineScope {
+			val job = launch(Dispatchers.Unconfined) { container.getFlow(key).toList(values) }
+			container.put(key, 1)
+			for (otherKey in otherKeys) container.put(otherKey, 0)
+			job.cancel()
+		}
+
+		values shouldBe listOf(null, 1)
+	}
+})
@@ -0,0 +1,97 @@
+package org.jellyfin.playback.core.queue
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import kotlinx.coroutines.flow.first
+import org.jellyfin.playback.core.queue.supplier.QueueSupplier
+import org.jellyfin.playback.core.testing.FakeQueueSupplier
+import org.jellyfin.playback.core.testing.runPlaybackTest
+import kotlin.time.Duration.Companion.seconds
+
+class QueueServiceTests : FunSpec({
+	test("Publishes a snapshot after changes") {
+		runPlaybackTest {
+			queue.snapshot.value shouldBe QueueSnapshot.EMPTY
+
+			queue.addSupplier(FakeQueueSupplier(size = 10))
+			advanceTimeBy(1.seconds)
+			queue.snapshot.value shouldBe QueueSnapshot(entryIndex = 0, estimatedSize = 10, playedIndices = emptySet())
+
+			queue.setIndex(3, saveHistory = true)
+			queue.snapshot.value shouldBe QueueSnapshot(entryIndex = 3, estimatedSize = 10, playedIndices = setOf(0))
+
+			queue.clear()
+			advanceTimeBy(1.seconds)
+			queue.snapshot.value shouldBe QueueSnapshot.EMPTY
+		}
+	}
+
+	test("Pages through the queue with windows") {
+		runPlaybackTest {
+			queue.addSupplier(FakeQueueSupplier(size = 10))
+			advanceTimeBy(1.seconds)
+			queue.setIndex(1, saveHistory = true)
+
+			val window = queue.getWindow(start = 0, size = 3).first()
+			window.items.map { it.mediaId } shouldContainExactly listOf("item-0", "item-1", "item-2")
+			window.items.map { it.played } shouldContainExactly listOf(true, false, false)
+			window.items.map { it.current } shouldContainExactly listOf(false, true, false)
+
+			val lastWindow = queue.getWindow(start = 8, size = 5).first()
+			lastWindow.items.map { it.index } shouldContainExactly listOf(8, 9)
+		}
+	}
+
+	test("Windows do not supply entries for playback") {
+		runPlaybackTest(configure = { queueWindowSize = 3 }) {
+			val supplier = FakeQueueSupplier(size = 10)
+			queue.addSupplier(supplier)
+			advanceTimeBy(1.seconds)
+			queue.peekNext()?.metadata?.mediaId shouldBe "item-1"
+			val requestCount = supplier.requestCount
+
+			queue.getWindow(start = 4, size = 5).first().items.map { it.index } shouldContainExactly (4..8).toList()
+
+			// The playback entries are still available without supplying them again
+			supplier.requestCount shouldBe requestCount + 5
+			queue.peekNext()?.metadata?.mediaId shouldBe "item-1"
+			supplier.requestCount shouldBe requestCount + 5
+		}
+	}
+
+	test("Keeps the current and adjacent entries when trimming") {
+		runPlaybackTest(configure = { queueWindowSize = 1 }) {
+			queue.addSupplier(FakeQueueSupplier(size = 10))
+			advanceTimeBy(1.seconds)
+			queue.next()
+			val previousEntry = queue.entry.value
+
+			queue.setIndex(8, saveHistory = true)
+			val currentEntry = queue.entry.value
+			queue.peekNext()?.metadata?.mediaId shouldBe "item-9"
+			advanceTimeBy(1.seconds)
+
+			// Supplying the entries again would create new instances without their elements
+			queue.entry.value shouldBeSameInstanceAs currentEntry
+			queue.peekPrevious() shouldBeSameInstanceAs previousEntry
+			queue.previous() shouldBeSameInstanceAs previousEntry
+		}
+	}
+
+	test("Keeps applying changes after a change fails") {
+		runPlaybackTest {
+			queue.addSupplier(object : QueueSupplier {
+				override val size = 1
+				override suspend fun getItem(index: Int): QueueEntry? = error("Network error")
+			})
+			advanceTimeBy(1.seconds)
+
+			queue.clear()
+			queue.addSupplier(FakeQueueSupplier(size = 10))
+			advanceTimeBy(1.seconds)
+			queue.setIndex(2)?.metadata?.mediaId shouldBe "item-2"
+		}
+	}
+})
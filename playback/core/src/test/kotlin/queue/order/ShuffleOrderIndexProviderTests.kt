@@ -0,0 +1,98 @@
+package org.jellyfin.playback.core.queue.order
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.collections.shouldNotContain
+import io.kotest.matchers.shouldBe
+import kotlin.random.Random
+
+class ShuffleOrderIndexProviderTests : FunSpec({
+	/**
+	 * Simulate the [org.jellyfin.playback.core.queue.QueueService] playing through a queue of the
+	 * given size, peeking the next 15 indices before every skip.
+	 */
+	fun playAll(provider: OrderIndexProvider, size: Int): List<Int> {
+		val playedIndices = mutableListOf<Int>()
+		var currentIndex = 0
+
+		while (true) {
+			val next = provider.provideIndices(15, size, playedIndices, currentIndex).firstOrNull() ?: break
+			provider.useNextIndex()
+			playedIndices.add(currentIndex)
+			currentIndex = next
+		}
+
+		playedIndices.add(currentIndex)
+		return playedIndices
+	}
+
+	test("Shuffles every index exactly once") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		playAll(provider, 100) shouldContainExactlyInAnyOrder (0 until 100).toList()
+	}
+
+	test("Peeking returns the same indices until the next index is used") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		val first = provider.provideIndices(5, 100, emptyList(), 0)
+		provider.provideIndices(5, 100, emptyList(), 0) shouldBe first
+		provider.provideIndices(3, 100, emptyList(), 0) shouldBe first.take(3)
+
+		provider.useNextIndex()
+		provider.provideIndices(4, 100, listOf(0), first.first()) shouldBe first.drop(1)
+	}
+
+	test("Peeking does not mark the current index as played") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		provider.provideIndices(10, 10, emptyList(), 4) shouldNotContain 4
+		provider.provideIndices(10, 10, emptyList(), 5) shouldContainExactlyInAnyOrder (0 until 10).filter { it != 5 }
+	}
+
+	test("Provides indices again after going back") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		// Play two entries
+		val first = provider.provideIndices(1, 10, emptyList(), 0).first()
+		provider.useNextIndex()
+		val second = provider.provideIndices(1, 10, listOf(0), first).first()
+		provider.useNextIndex()
+		provider.provideIndices(10, 10, listOf(0, first), second) shouldNotContain first
+
+		// Go back to the first entry, the second entry is played next again
+		val indices = provider.provideIndices(10, 10, listOf(0), first)
+		indices.first() shouldBe second
+		indices shouldContainExactlyInAnyOrder (1 until 10).filter { it != first }
+	}
+
+	test("Never provides the current or played indices") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		val indices = provider.provideIndices(10, 10, listOf(1, 2, 3), 4)
+		indices shouldContainExactlyInAnyOrder listOf(0, 5, 6, 7, 8, 9)
+		indices shouldNotContain 10
+	}
+
+	test("Includes entries added to a growing queue") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		provider.provideIndices(5, 5, emptyList(), 0)
+		provider.provideIndices(10, 10, emptyList(), 0) shouldContainExactlyInAnyOrder (1 until 10).toList()
+	}
+
+	test("Provides nothing when all indices are played") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		provider.provideIndices(5, 3, listOf(0, 1), 2).shouldBeEmpty()
+	}
+
+	test("Shuffles a large queue") {
+		val provider = ShuffleOrderIndexProvider(Random(1))
+
+		val played = playAll(provider, 10_000)
+		played.size shouldBe 10_000
+		played.toSet().size shouldBe 10_000
+	}
+})
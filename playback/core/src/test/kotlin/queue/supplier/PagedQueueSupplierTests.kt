@@ -0,0 +1,108 @@
+package org.jellyfin.playback.core.queue.supplier
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.jellyfin.playback.core.queue.metadata
+import org.jellyfin.playback.core.testing.FakePagedQueueSupplier
+import kotlin.time.Duration.Companion.seconds
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class PagedQueueSupplierTests : FunSpec({
+	test("Loads evicted pages again") {
+		runTest {
+			val supplier = FakePagedQueueSupplier(size = 50, pageSize = 10, maxCachedPages = 2)
+
+			supplier.getItem(0)?.metadata?.mediaId shouldBe "item-0"
+			supplier.getItem(10)?.metadata?.mediaId shouldBe "item-10"
+			supplier.getItem(20)?.metadata?.mediaId shouldBe "item-20"
+			supplier.requestCount shouldBe 3
+
+			// The first page is evicted, the most recent pages are kept
+			supplier.getItem(1)?.metadata?.mediaId shouldBe "item-1"
+			supplier.requestCount shouldBe 4
+			supplier.getItem(21)?.metadata?.mediaId shouldBe "item-21"
+			supplier.requestCount shouldBe 4
+		}
+	}
+
+	test("Stops loading pages after the end of the list") {
+		runTest {
+			val supplier = FakePagedQueueSupplier(size = 15, pageSize = 10, maxCachedPages = 2)
+
+			supplier.getItem(14)?.metadata?.mediaId shouldBe "item-14"
+			supplier.requestCount shouldBe 1
+
+			// The partial page marks the end of the list
+			supplier.getItem(15).shouldBeNull()
+			supplier.getItem(25).shouldBeNull()
+			supplier.requestCount shouldBe 1
+		}
+	}
+
+	test("Stops loading pages after an empty page") {
+		runTest {
+			val supplier = FakePagedQueueSupplier(size = 20, pageSize = 10, maxCachedPages = 2)
+
+			supplier.getItem(20).shouldBeNull()
+			supplier.requestCount shouldBe 1
+
+			supplier.getItem(30).shouldBeNull()
+			supplier.requestCount shouldBe 1
+		}
+	}
+
+	test("Shares concurrent loads of the same page") {
+		runTest {
+			val supplier = FakePagedQueueSupplier(size = 50, pageSize = 10, maxCachedPages = 2, latency = 1.seconds)
+
+			val items = List(3) { index ->
+				async { supplier.getItem(index)?.metadata?.mediaId }
+			}.awaitAll()
+
+			items shouldContainExactly listOf("item-0", "item-1", "item-2")
+			supplier.requestCount shouldBe 1
+		}
+	}
+
+	test("Loads the next page in the background near the end of a page") {
+		runTest {
+			val supplier = FakePagedQueueSupplier(size = 50, pageSize = 10, maxCachedPages = 2, latency = 1.seconds)
+			supplier.prefetchScope = backgroundScope
+
+			supplier.getItem(4)?.metadata?.mediaId shouldBe "item-4"
+			runCurrent()
+			supplier.requestCount shouldBe 1
+
+			// Within the prefetch distance of the next page
+			supplier.getItem(5)?.metadata?.mediaId shouldBe "item-5"
+			runCurrent()
+			supplier.requestCount shouldBe 2
+
+			advanceTimeBy(2.seconds)
+			supplier.getItem(10)?.metadata?.mediaId shouldBe "item-10"
+			supplier.requestCount shouldBe 2
+		}
+	}
+
+	test("Loads the page again when the caller loading it is cancelled") {
+		runTest {
+			val supplier = FakePagedQueueSupplier(size = 50, pageSize = 10, maxCachedPages = 2, latency = 1.seconds)
+
+			val owner = async { supplier.getItem(0) }
+			val waiter = async { supplier.getItem(1) }
+			runCurrent()
+			owner.cancel()
+
+			waiter.await()?.metadata?.mediaId shouldBe "item-1"
+			supplier.requestCount shouldBe 2
+		}
+	}
+})
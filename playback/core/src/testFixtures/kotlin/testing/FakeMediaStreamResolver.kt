@@ -0,0 +1,45 @@
+package org.jellyfin.playback.core.testing
+
+import kotlinx.coroutines.delay
+import org.jellyfin.playback.core.mediastream.MediaConversionMethod
+import org.jellyfin.playback.core.mediastream.MediaStream
+import org.jellyfin.playback.core.mediastream.MediaStreamContainer
+import org.jellyfin.playback.core.mediastream.MediaStreamResolver
+import org.jellyfin.playback.core.mediastream.PlayableMediaStream
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.queue.metadata
+import org.jellyfin.playback.core.support.PlaySupportReport
+import kotlin.time.Duration
+
+/**
+ * [MediaStreamResolver] resolving a stream for every entry after waiting for [latency].
+ */
+class FakeMediaStreamResolver(
+	private val latency: Duration = Duration.ZERO,
+	private val conversionMethod: MediaConversionMethod = MediaConversionMethod.None,
+) : MediaStreamResolver {
+	private val _resolvedEntries = mutableListOf<QueueEntry>()
+
+	/**
+	 * All entries a stream was resolved for, in order.
+	 */
+	val resolvedEntries: List<QueueEntry> get() = _resolvedEntries
+
+	override suspend fun getStream(
+		queueEntry: QueueEntry,
+		testStream: (stream: MediaStream) -> PlaySupportReport,
+	): PlayableMediaStream? {
+		delay(latency)
+		_resolvedEntries.add(queueEntry)
+
+		val mediaId = queueEntry.metadata.mediaId
+		return PlayableMediaStream(
+			identifier = "stream-$mediaId",
+			conversionMethod = conversionMethod,
+			container = MediaStreamContainer(format = "fake"),
+			tracks = emptyList(),
+			queueEntry = queueEntry,
+			url = "fake://$mediaId",
+		)
+	}
+}
@@ -0,0 +1,253 @@
+package org.jellyfin.playback.core.testing
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import org.jellyfin.playback.core.backend.BasePlayerBackend
+import org.jellyfin.playback.core.mediastream.MediaStream
+import org.jellyfin.playback.core.mediastream.mediaStream
+import org.jellyfin.playback.core.model.PlayState
+import org.jellyfin.playback.core.model.PositionInfo
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.queue.metadata
+import org.jellyfin.playback.core.support.PlaySupportReport
+import org.jellyfin.playback.core.ui.PlayerSubtitleView
+import org.jellyfin.playback.core.ui.PlayerSurfaceView
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.minutes
+
+data class FakePlayerBackendOptions(
+	/**
+	 * Time spent buffering when playing an entry that was not prepared.
+	 */
+	val startLatency: Duration = 500.milliseconds,
+	/**
+	 * Time it takes to prepare an entry. Playing an entry that is still preparing only waits for the
+	 * remaining time.
+	 */
+	val prepareLatency: Duration = 500.milliseconds,
+	/**
+	 * Time spent buffering after seeking. Seeks complete without buffering when zero.
+	 */
+	val seekLatency: Duration = 200.milliseconds,
+	/**
+	 * Duration of entries without a duration in their metadata.
+	 */
+	val defaultDuration: Duration = 3.minutes,
+	val supportsStream: (stream: MediaStream) -> PlaySupportReport = { SupportedPlaySupportReport },
+)
+
+private object SupportedPlaySupportReport : PlaySupportReport {
+	override val canPlay = true
+}
+
+/**
+ * Headless [BasePlayerBackend] simulating buffering, playback, seeking and the end of streams. All
+ * timing is based on [currentTime] and scheduled in [scope], which are expected to use a virtual
+ * clock in tests.
+ */
+class FakePlayerBackend(
+	private val scope: CoroutineScope,
+	private val currentTime: () -> Duration,
+	private val options: FakePlayerBackendOptions = FakePlayerBackendOptions(),
+) : BasePlayerBackend() {
+	private var current: QueueEntry? = null
+	private val prepared = mutableMapOf<QueueEntry, Duration>()
+
+	private var playWhenReady = false
+	private var buffering = false
+	private var ended = false
+	private var playState = PlayState.STOPPED
+	private var speed = 1f
+
+	// Position at positionTime, advances with the clock while playing
+	private var position = Duration.ZERO
+	private var positionTime = Duration.ZERO
+	private var duration = Duration.ZERO
+
+	private var bufferingJob: Job? = null
+	private var endJob: Job? = null
+
+	private val _preparedEntries = mutableListOf<QueueEntry>()
+	private val _playedEntries = mutableListOf<QueueEntry>()
+
+	val currentEntry: QueueEntry? get() = current
+	val isBuffering: Boolean get() = buffering
+
+	/**
+	 * All entries that were prepared, in order.
+	 */
+	val preparedEntries: List<QueueEntry> get() = _preparedEntries
+
+	/**
+	 * All entries that were played, in order.
+	 */
+	val playedEntries: List<QueueEntry> get() = _playedEntries
+
+	override fun supportsStream(stream: MediaStream): PlaySupportReport = options.supportsStream(stream)
+
+	override fun setSurfaceView(surfaceView: PlayerSurfaceView?) = Unit
+	override fun setSubtitleView(surfaceView: PlayerSubtitleView?) = Unit
+
+	override fun getPositionInfo(): PositionInfo {
+		val active = getCurrentPosition()
+		return PositionInfo(
+			active = active,
+			buffer = if (buffering) active else duration,
+			duration = duration,
+		)
+	}
+
+	override fun prepareItem(item: QueueEntry) {
+		// Only the last prepared entry is kept, like the ExoPlayer backend
+		prepared.clear()
+		prepared[item] = currentTime() + options.prepareLatency
+		_preparedEntries.add(item)
+	}
+
+	override fun playItem(item: QueueEntry) {
+		if (current == item) return
+
+		val readyTime = prepared.remove(item)
+		prepared.clear()
+
+		playWhenReady = true
+		setCurrent(item)
+		startBuffering(if (readyTime == null) options.startLatency else getRemainingLatency(readyTime))
+	}
+
+	override fun play() {
+		playWhenReady = true
+		updatePlayState()
+	}
+
+	override fun pause() {
+		playWhenReady = false
+		updatePlayState()
+	}
+
+	override fun stop() {
+		bufferingJob?.cancel()
+		current = null
+		prepared.clear()
+		playWhenReady = false
+		ended = false
+		setBuffering(false)
+		updatePlayState()
+		setPosition(Duration.ZERO)
+		duration = Duration.ZERO
+	}
+
+	override fun seekTo(position: Duration) {
+		if (current == null) return
+
+		ended = false
+		setPosition(position.coerceIn(Duration.ZERO, duration))
+		listener?.onSeek(this.position)
+		if (options.seekLatency > Duration.ZERO) startBuffering(options.seekLatency) else scheduleEnd()
+	}
+
+	override fun setSpeed(speed: Float) {
+		setPosition(getCurrentPosition())
+		this.speed = speed
+		scheduleEnd()
+	}
+
+	/**
+	 * Simulate a stall of the stream, the backend buffers for the given [duration] and resumes
+	 * afterwards.
+	 */
+	fun simulateRebuffer(duration: Duration) {
+		if (current == null) return
+		startBuffering(duration)
+	}
+
+	private fun setCurrent(item: QueueEntry) {
+		current = item
+		_playedEntries.add(item)
+		duration = item.metadata.duration ?: options.defaultDuration
+		ended = false
+		setPosition(Duration.ZERO)
+	}
+
+	private fun getRemainingLatency(readyTime: Duration) = (readyTime - currentTime()).coerceAtLeast(Duration.ZERO)
+
+	private fun getCurrentPosition(): Duration {
+		if (playState != PlayState.PLAYING) return position
+
+		val elapsed = (currentTime() - positionTime) * speed.toDouble()
+		return (position + elapsed).coerceAtMost(duration)
+	}
+
+	private fun setPosition(position: Duration) {
+		this.position = position
+		positionTime = currentTime()
+	}
+
+	private fun setBuffering(buffering: Boolean) {
+		if (this.buffering == buffering) return
+		this.buffering = buffering
+		listener?.onBufferingChange(buffering)
+	}
+
+	private fun startBuffering(latency: Duration) {
+		bufferingJob?.cancel()
+		setBuffering(true)
+		updatePlayState()
+
+		bufferingJob = scope.launch {
+			delay(latency)
+			setBuffering(false)
+			updatePlayState()
+		}
+	}
+
+	private fun updatePlayState() {
+		val state = when {
+			current == null || ended -> PlayState.STOPPED
+			playWhenReady && !buffering -> PlayState.PLAYING
+			else -> PlayState.PAUSED
+		}
+		if (state == playState) return
+
+		// Freeze or resume the position before changing the state
+		setPosition(getCurrentPosition())
+		playState = state
+		scheduleEnd()
+		listener?.onPlayStateChange(state)
+	}
+
+	private fun scheduleEnd() {
+		endJob?.cancel()
+		if (playState != PlayState.PLAYING) return
+
+		val remaining = (duration - getCurrentPosition()) / speed.toDouble()
+		endJob = scope.launch {
+			delay(remaining)
+			onEnd()
+		}
+	}
+
+	private fun onEnd() {
+		val stream = current?.mediaStream ?: return
+		val next = prepared.keys.lastOrNull()
+
+		if (next == null) {
+			// Nothing to continue with, the playback ends like the ExoPlayer backend
+			setPosition(duration)
+			ended = true
+			updatePlayState()
+		} else {
+			// Continue with the prepared entry without pausing like the ExoPlayer backend, only
+			// buffer when it is still preparing
+			val latency = getRemainingLatency(prepared.getValue(next))
+			prepared.clear()
+			setCurrent(next)
+			if (latency > Duration.ZERO) startBuffering(latency) else scheduleEnd()
+		}
+
+		listener?.onMediaStreamEnd(stream)
+	}
+}
@@ -0,0 +1,61 @@
+package org.jellyfin.playback.core.testing
+
+import kotlinx.coroutines.delay
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.queue.QueueEntryMetadata
+import org.jellyfin.playback.core.queue.metadata
+import org.jellyfin.playback.core.queue.supplier.PagedQueueSupplier
+import org.jellyfin.playback.core.queue.supplier.QueueSupplier
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+
+/**
+ * Create a queue entry with the media id "item-[index]".
+ */
+fun createFakeQueueEntry(index: Int, duration: Duration = 3.minutes) = QueueEntry().apply {
+	metadata = QueueEntryMetadata(
+		mediaId = "item-$index",
+		duration = duration,
+		title = "Item $index",
+	)
+}
+
+/**
+ * [QueueSupplier] with [size] generated entries, each item request waits for [latency].
+ */
+class FakeQueueSupplier(
+	override val size: Int,
+	private val duration: Duration = 3.minutes,
+	private val latency: Duration = Duration.ZERO,
+) : QueueSupplier {
+	var requestCount = 0
+		private set
+
+	override suspend fun getItem(index: Int): QueueEntry? {
+		if (index !in 0 until size) return null
+
+		requestCount++
+		delay(latency)
+		return createFakeQueueEntry(index, duration)
+	}
+}
+
+/**
+ * [PagedQueueSupplier] with [size] generated entries, each page request waits for [latency].
+ */
+class FakePagedQueueSupplier(
+	override val size: Int,
+	pageSize: Int = 10,
+	maxCachedPages: Int = 10,
+	private val duration: Duration = 3.minutes,
+	private val latency: Duration = Duration.ZERO,
+) : PagedQueueSupplier(pageSize, maxCachedPages) {
+	var requestCount = 0
+		private set
+
+	override suspend fun loadPage(offset: Int, size: Int): Collection<QueueEntry> {
+		requestCount++
+		delay(latency)
+		return (offset until minOf(offset + size, this.size)).map { index -> createFakeQueueEntry(index, duration) }
+	}
+}
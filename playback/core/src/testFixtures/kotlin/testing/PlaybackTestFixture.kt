@@ -0,0 +1,100 @@
+package org.jellyfin.playback.core.testing
+
+import io.mockk.mockk
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.job
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import kotlinx.coroutines.test.setMain
+import org.jellyfin.playback.core.PlaybackManager
+import org.jellyfin.playback.core.PlaybackManagerBuilder
+import org.jellyfin.playback.core.PlayerState
+import org.jellyfin.playback.core.mediastream.MediaStreamResolver
+import org.jellyfin.playback.core.plugin.PlayerService
+import org.jellyfin.playback.core.plugin.playbackPlugin
+import org.jellyfin.playback.core.queue.Queue
+import org.jellyfin.playback.core.queue.queue
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * A [PlaybackManager] using the [FakePlayerBackend], running on the virtual clock of [scope].
+ */
+class PlaybackTestFixture(
+	val scope: TestScope,
+	val backend: FakePlayerBackend,
+	val manager: PlaybackManager,
+) {
+	val state: PlayerState get() = manager.state
+	val queue: Queue get() = manager.queue
+
+	/**
+	 * The current virtual time.
+	 */
+	@OptIn(ExperimentalCoroutinesApi::class)
+	val currentTime: Duration get() = scope.testScheduler.currentTime.milliseconds
+
+	/**
+	 * Advance the virtual clock by [duration] and run all tasks scheduled up to that moment.
+	 */
+	@OptIn(ExperimentalCoroutinesApi::class)
+	fun advanceTimeBy(duration: Duration) {
+		scope.testScheduler.advanceTimeBy(duration)
+		scope.runCurrent()
+	}
+
+	/**
+	 * Run all tasks scheduled for the current moment without advancing the virtual clock.
+	 */
+	@OptIn(ExperimentalCoroutinesApi::class)
+	fun runCurrent() = scope.runCurrent()
+}
+
+/**
+ * Run [body] with a [PlaybackTestFixture]. The main dispatcher and the dispatcher of all services
+ * are replaced with a test dispatcher so everything runs on a single thread using virtual time.
+ * Note that the position ticker keeps scheduling tasks while playing, advance the time with
+ * [PlaybackTestFixture.advanceTimeBy] instead of waiting until idle.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+fun runPlaybackTest(
+	backendOptions: FakePlayerBackendOptions = FakePlayerBackendOptions(),
+	mediaStreamResolvers: List<MediaStreamResolver> = listOf(FakeMediaStreamResolver()),
+	services: List<PlayerService> = emptyList(),
+	configure: PlaybackManagerBuilder.() -> Unit = {},
+	body: suspend PlaybackTestFixture.() -> Unit,
+) = runTest {
+	val dispatcher = StandardTestDispatcher(testScheduler)
+	Dispatchers.setMain(dispatcher)
+
+	try {
+		val backend = FakePlayerBackend(
+			scope = backgroundScope,
+			currentTime = { testScheduler.currentTime.milliseconds },
+			options = backendOptions,
+		)
+
+		// The context is only used for the volume state, which is unavailable in unit tests
+		val manager = PlaybackManagerBuilder(mockk(relaxed = true)).apply {
+			install(playbackPlugin {
+				provide(backend)
+				mediaStreamResolvers.forEach { provide(it) }
+				services.forEach { provide(it) }
+			})
+
+			parentJob = backgroundScope.coroutineContext.job
+			this.dispatcher = dispatcher
+			configure()
+		}.build()
+
+		val fixture = PlaybackTestFixture(this, backend, manager)
+		fixture.runCurrent()
+		fixture.body()
+	} finally {
+		Dispatchers.resetMain()
+	}
+}
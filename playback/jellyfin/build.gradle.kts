@@ -1,6 +1,7 @@
 plugins {
 	id("com.android.library")
 	kotlin("android")
+	alias(libs.plugins.kotlin.serialization)
 }
 
 android {
@@ -38,6 +39,9 @@ dependencies {
 		}
 	}
 
+	// Kotlin
+	implementation(libs.kotlinx.serialization.json)
+
 	// Logging
 	implementation(libs.timber)
 
@@ -48,4 +52,5 @@ dependencies {
 	testImplementation(libs.kotest.runner.junit5)
 	testImplementation(libs.kotest.assertions)
 	testImplementation(libs.mockk)
+	testImplementation(testFixtures(projects.playback.core))
 }
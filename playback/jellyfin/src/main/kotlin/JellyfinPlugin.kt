@@ -1,8 +1,14 @@
 package org.jellyfin.playback.jellyfin
 
+import org.jellyfin.playback.core.bandwidth.BandwidthEstimator
 import org.jellyfin.playback.core.plugin.playbackPlugin
 import org.jellyfin.playback.jellyfin.mediastream.AudioMediaStreamResolver
+import org.jellyfin.playback.jellyfin.mediastream.BandwidthProbe
+import org.jellyfin.playback.jellyfin.mediastream.MediaStreamCache
+import org.jellyfin.playback.jellyfin.mediastream.PlaybackInfoCache
+import org.jellyfin.playback.jellyfin.mediastream.PlaybackInfoPrefetchService
 import org.jellyfin.playback.jellyfin.mediastream.VideoMediaStreamResolver
+import org.jellyfin.playback.jellyfin.playsession.PlaySessionJournal
 import org.jellyfin.playback.jellyfin.playsession.PlaySessionService
 import org.jellyfin.playback.jellyfin.playsession.PlaySessionSocketService
 import org.jellyfin.sdk.api.client.ApiClient
@@ -10,9 +16,19 @@ import org.jellyfin.sdk.model.api.DlnaProfileType
 import org.jellyfin.sdk.model.api.EncodingContext
 import org.jellyfin.sdk.model.api.MediaStreamProtocol
 import org.jellyfin.sdk.model.deviceprofile.buildDeviceProfile
+import java.io.File
 
+/**
+ * Playback of Jellyfin items. Play session reports that fail to send are written to [journalFile]
+ * when set and replayed later. The streaming bitrate is limited to the throughput measured by the
+ * [bandwidthEstimator] when set. Transcoding to AV1 is only requested when [enableAv1Transcoding] is
+ * set, AV1 sources are always copied when supported.
+ */
 fun jellyfinPlugin(
 	api: ApiClient,
+	journalFile: File? = null,
+	bandwidthEstimator: BandwidthEstimator? = null,
+	enableAv1Transcoding: Boolean = false,
 ) = playbackPlugin {
 	val profile = buildDeviceProfile {
 		// Add at least one transcoding profile for both audio an video so the server returns a
@@ -36,10 +52,17 @@ fun jellyfinPlugin(
 		}
 	}
 
-	provide(AudioMediaStreamResolver(api, profile))
-	provide(VideoMediaStreamResolver(api, profile))
+	val streamCache = MediaStreamCache()
+	val playbackInfoCache = PlaybackInfoCache()
+	val bandwidthProbe = bandwidthEstimator?.let { BandwidthProbe(api, it) }
+	val resolvers = listOf(
+		AudioMediaStreamResolver(api, profile, streamCache, playbackInfoCache, bandwidthProbe),
+		VideoMediaStreamResolver(api, profile, streamCache, playbackInfoCache, bandwidthProbe, enableAv1Transcoding),
+	)
+	resolvers.forEach { provide(it) }
+	provide(PlaybackInfoPrefetchService(resolvers))
 
-	val playSessionService = PlaySessionService(api)
+	val playSessionService = PlaySessionService(api, streamCache, journalFile?.let(::PlaySessionJournal))
 	provide(playSessionService)
 	provide(PlaySessionSocketService(api, playSessionService))
 }
@@ -12,25 +12,23 @@ import org.jellyfin.playback.jellyfin.queue.mediaSourceId
 import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.api.client.extensions.audioApi
 import org.jellyfin.sdk.api.client.extensions.dynamicHlsApi
+import org.jellyfin.sdk.model.api.BaseItemDto
 import org.jellyfin.sdk.model.api.DeviceProfile
+import org.jellyfin.sdk.model.api.DlnaProfileType
 import org.jellyfin.sdk.model.api.MediaType
 
 class AudioMediaStreamResolver(
 	val api: ApiClient,
 	val profile: DeviceProfile,
-) : JellyfinStreamResolver(api, profile) {
+	streamCache: MediaStreamCache? = null,
+	playbackInfoCache: PlaybackInfoCache? = null,
+	bandwidthProbe: BandwidthProbe? = null,
+) : JellyfinStreamResolver(api, profile, streamCache, playbackInfoCache, bandwidthProbe) {
 	companion object {
 		private val REMUX_CONTAINERS = arrayOf("mp3", "ogg", "mkv")
 		private const val REMUX_SEGMENT_CONTAINER = "mp3"
 	}
 
-	private fun MediaInfo.getDirectPlayStream() = BasicMediaStream(
-		identifier = playSessionId,
-		conversionMethod = MediaConversionMethod.None,
-		container = getMediaStreamContainer(),
-		tracks = getTracks()
-	)
-
 	private fun MediaInfo.getRemuxStream(container: String) = BasicMediaStream(
 		identifier = playSessionId,
 		conversionMethod = MediaConversionMethod.Remux,
@@ -48,28 +46,31 @@ class AudioMediaStreamResolver(
 		tracks = emptyList()
 	)
 
-	override suspend fun getStream(
+	private fun MediaInfo.getDirectPlayUrl(baseItem: BaseItemDto) = api.audioApi.getAudioStreamUrl(
+		itemId = baseItem.id,
+		mediaSourceId = mediaSource.id,
+		playSessionId = playSessionId,
+		static = true,
+	)
+
+	override val directPlayType = DlnaProfileType.AUDIO
+
+	override fun canResolve(queueEntry: QueueEntry) = queueEntry.baseItem?.mediaType == MediaType.AUDIO
+
+	override suspend fun resolveStream(
 		queueEntry: QueueEntry,
+		baseItem: BaseItemDto,
 		testStream: (stream: MediaStream) -> PlaySupportReport,
 	): PlayableMediaStream? {
-		val baseItem = queueEntry.baseItem
-		if (baseItem == null || baseItem.mediaType != MediaType.AUDIO) return null
+		// Direct play using the media sources of the item when possible to skip the playback info request
+		getDirectPlayMediaInfo(baseItem, queueEntry.mediaSourceId)
+			?.resolveDirectPlayStream(queueEntry, testStream) { getDirectPlayUrl(baseItem) }
+			?.let { return it }
 
 		val mediaInfo = getPlaybackInfo(baseItem, queueEntry.mediaSourceId)
 
 		// Test for direct play support
-		val directPlayStream = mediaInfo.getDirectPlayStream()
-		if (testStream(directPlayStream).canPlay) {
-			return directPlayStream.toPlayableMediaStream(
-				queueEntry = queueEntry,
-				url = api.audioApi.getAudioStreamUrl(
-					itemId = baseItem.id,
-					mediaSourceId = mediaInfo.mediaSource.id,
-					playSessionId = mediaInfo.playSessionId,
-					static = true,
-				)
-			)
-		}
+		mediaInfo.resolveDirectPlayStream(queueEntry, testStream) { getDirectPlayUrl(baseItem) }?.let { return it }
 
 		// Try remuxing
 		if (mediaInfo.mediaSource.supportsDirectStream) {
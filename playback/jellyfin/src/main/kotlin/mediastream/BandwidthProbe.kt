@@ -0,0 +1,82 @@
+package org.jellyfin.playback.jellyfin.mediastream
+
+import io.ktor.utils.io.toByteArray
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import org.jellyfin.playback.core.bandwidth.BandwidthEstimator
+import org.jellyfin.sdk.api.client.ApiClient
+import org.jellyfin.sdk.api.client.extensions.mediaInfoApi
+import timber.log.Timber
+import kotlin.math.roundToLong
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * Determines the max streaming bitrate for playback info requests using the [BandwidthEstimator].
+ * When there is no recent estimate for the server the bitrate test endpoint is used to measure it in
+ * the background, playback never waits for the measurement.
+ */
+class BandwidthProbe(
+	private val api: ApiClient,
+	private val estimator: BandwidthEstimator,
+	private val probeSize: Int = 1_000_000,
+	private val timeSource: TimeSource = TimeSource.Monotonic,
+) {
+	companion object {
+		// Leave headroom for variations in throughput and bitrate
+		private const val BITRATE_FACTOR = 0.8
+		private const val MIN_BITRATE = 500_000L
+		private val PROBE_RETRY_INTERVAL = 1.minutes
+	}
+
+	private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+	private var probeJob: Job? = null
+	private var lastProbe: TimeMark? = null
+
+	/**
+	 * Get the max streaming bitrate to use, limited to [maxBitrate] when set. Returns [maxBitrate] when
+	 * the throughput is unknown and starts measuring it for the next request.
+	 */
+	fun getMaxStreamingBitrate(maxBitrate: Int?): Int? {
+		val estimate = getEstimate() ?: return maxBitrate
+		val bitrate = (estimate * BITRATE_FACTOR).roundToLong()
+			.coerceIn(MIN_BITRATE, Int.MAX_VALUE.toLong())
+			.toInt()
+
+		return if (maxBitrate == null) bitrate else minOf(maxBitrate, bitrate)
+	}
+
+	private fun getEstimate(): Long? {
+		val baseUrl = api.baseUrl ?: return null
+		estimator.getEstimate(baseUrl)?.let { return it }
+
+		synchronized(this) {
+			// Avoid probing on every request when the probe fails
+			if (probeJob?.isActive == true) return null
+			if (lastProbe?.let { it.elapsedNow() < PROBE_RETRY_INTERVAL } == true) return null
+
+			lastProbe = timeSource.markNow()
+			probeJob = scope.launch { probe(baseUrl) }
+		}
+
+		return null
+	}
+
+	private suspend fun probe(baseUrl: String) {
+		try {
+			val start = timeSource.markNow()
+			val response by api.mediaInfoApi.getBitrateTestBytes(size = probeSize)
+			val bytes = response.toByteArray().size.toLong()
+			estimator.addSample(baseUrl, bytes, start.elapsedNow())
+		} catch (err: CancellationException) {
+			throw err
+		} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+			Timber.w(err, "Failed to probe bandwidth")
+		}
+	}
+}
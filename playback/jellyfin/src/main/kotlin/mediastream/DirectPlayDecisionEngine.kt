@@ -0,0 +1,88 @@
+package org.jellyfin.playback.jellyfin.mediastream
+
+import org.jellyfin.sdk.model.api.BaseItemDto
+import org.jellyfin.sdk.model.api.DeviceProfile
+import org.jellyfin.sdk.model.api.DlnaProfileType
+import org.jellyfin.sdk.model.api.MediaProtocol
+import org.jellyfin.sdk.model.api.MediaSourceInfo
+import org.jellyfin.sdk.model.api.UserPolicy
+import java.util.UUID
+
+/**
+ * Decides if a media source is a direct play candidate using the media sources included in the item
+ * (requested with `ItemFields.MEDIA_SOURCES`). This allows direct playing without requesting the
+ * playback info from the server first. The backend support is tested by the stream resolvers.
+ *
+ * The server applies the user policy to the playback info, sources are only direct played by the
+ * client when the policy is known and can't restrict them. Remuxing is never decided by the client so
+ * the remuxing permission is applied by the server.
+ */
+class DirectPlayDecisionEngine(
+	private val profile: DeviceProfile,
+) {
+	/**
+	 * Get the media info for direct playing [item] or null when the server needs to decide. Sources
+	 * exceeding [maxBitrate] or restricted by [policy] are left to the server.
+	 */
+	fun getDirectPlayMediaInfo(
+		item: BaseItemDto,
+		mediaSourceId: String?,
+		type: DlnaProfileType,
+		policy: UserPolicy?,
+		maxBitrate: Int? = profile.maxStreamingBitrate,
+	): JellyfinStreamResolver.MediaInfo? {
+		val mediaSource = item.mediaSources
+			?.filter { it.protocol == MediaProtocol.FILE && !it.isRemote }
+			?.firstOrNull { mediaSourceId == null || it.id == mediaSourceId }
+			?: return null
+
+		if (!isAllowedByPolicy(mediaSource, policy)) return null
+		if (!canDirectPlay(mediaSource, type, maxBitrate)) return null
+
+		return JellyfinStreamResolver.MediaInfo(
+			// The server accepts play sessions created by the client
+			playSessionId = UUID.randomUUID().toString().replace("-", ""),
+			mediaSource = mediaSource,
+		)
+	}
+
+	private fun isAllowedByPolicy(mediaSource: MediaSourceInfo, policy: UserPolicy?): Boolean {
+		if (policy == null || !policy.enableMediaPlayback) return false
+
+		// The client doesn't know if the server considers the connection remote, sources that might
+		// exceed the remote limit are left to the server
+		val remoteBitrateLimit = policy.remoteClientBitrateLimit
+		if (remoteBitrateLimit > 0) {
+			val bitrate = mediaSource.bitrate ?: return false
+			if (bitrate > remoteBitrateLimit) return false
+		}
+
+		return true
+	}
+
+	private fun canDirectPlay(mediaSource: MediaSourceInfo, type: DlnaProfileType, maxBitrate: Int?): Boolean {
+		if (!mediaSource.supportsDirectPlay) return false
+		// Container and streams are required to test the stream with the backend
+		val container = mediaSource.container ?: return false
+		if (mediaSource.mediaStreams.isNullOrEmpty()) return false
+
+		// Sources with unknown bitrate can't be compared to the limit so they are allowed
+		val bitrate = mediaSource.bitrate
+		if (maxBitrate != null && bitrate != null && bitrate > maxBitrate) return false
+
+		// Profiles without direct play profiles rely on the backend support test only
+		val directPlayProfiles = profile.directPlayProfiles.filter { it.type == type }
+		if (directPlayProfiles.isEmpty()) return true
+
+		val containers = container.splitList()
+		return directPlayProfiles.any { directPlayProfile ->
+			val profileContainers = directPlayProfile.container.splitList()
+			profileContainers.isEmpty() || containers.any { it in profileContainers }
+		}
+	}
+
+	private fun String?.splitList() = orEmpty()
+		.split(',')
+		.map { it.trim().lowercase() }
+		.filter { it.isNotEmpty() }
+}
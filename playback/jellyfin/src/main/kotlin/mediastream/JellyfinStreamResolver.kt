@@ -1,32 +1,180 @@
 package org.jellyfin.playback.jellyfin.mediastream
 
 import io.ktor.http.URLBuilder
+import kotlinx.coroutines.CancellationException
+import org.jellyfin.playback.core.mediastream.BasicMediaStream
+import org.jellyfin.playback.core.mediastream.MediaConversionMethod
+import org.jellyfin.playback.core.mediastream.MediaStream
 import org.jellyfin.playback.core.mediastream.MediaStreamResolver
+import org.jellyfin.playback.core.mediastream.PlayableMediaStream
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.support.PlaySupportReport
+import org.jellyfin.playback.jellyfin.queue.baseItem
+import org.jellyfin.playback.jellyfin.queue.mediaSourceId
 import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.api.client.extensions.mediaInfoApi
+import org.jellyfin.sdk.api.client.extensions.userApi
 import org.jellyfin.sdk.model.api.BaseItemDto
 import org.jellyfin.sdk.model.api.DeviceProfile
+import org.jellyfin.sdk.model.api.DlnaProfileType
 import org.jellyfin.sdk.model.api.MediaProtocol
 import org.jellyfin.sdk.model.api.MediaSourceInfo
 import org.jellyfin.sdk.model.api.PlaybackInfoDto
+import org.jellyfin.sdk.model.api.UserPolicy
+import timber.log.Timber
 
 abstract class JellyfinStreamResolver(
 	private val api: ApiClient,
 	private val profile: DeviceProfile,
+	private val streamCache: MediaStreamCache? = null,
+	private val playbackInfoCache: PlaybackInfoCache? = null,
+	private val bandwidthProbe: BandwidthProbe? = null,
 ) : MediaStreamResolver {
+	private val directPlayDecisionEngine = DirectPlayDecisionEngine(profile)
+
+	// Policy of the user the access token belongs to
+	@Volatile
+	private var userPolicy: Pair<String?, UserPolicy?>? = null
+
 	data class MediaInfo(
 		val playSessionId: String,
 		val mediaSource: MediaSourceInfo,
 	)
 
+	final override suspend fun getStream(
+		queueEntry: QueueEntry,
+		testStream: (stream: MediaStream) -> PlaySupportReport,
+	): PlayableMediaStream? {
+		val baseItem = queueEntry.baseItem
+		if (baseItem == null || !canResolve(queueEntry)) return null
+
+		// Reuse a previously resolved stream when the entry is played again
+		val cacheKey = MediaStreamCache.Key(baseItem.id, queueEntry.mediaSourceId)
+		streamCache?.get(cacheKey)?.let { stream -> return stream.copy(queueEntry = queueEntry) }
+
+		val stream = resolveStream(queueEntry, baseItem, testStream)
+		if (stream != null) streamCache?.set(cacheKey, stream)
+		return stream
+	}
+
+	/**
+	 * The profile type used to decide if items can be direct played without the playback info.
+	 */
+	protected abstract val directPlayType: DlnaProfileType
+
+	/**
+	 * Resolve the stream for a queue entry that passed the [canResolve] check.
+	 */
+	protected abstract suspend fun resolveStream(
+		queueEntry: QueueEntry,
+		baseItem: BaseItemDto,
+		testStream: (stream: MediaStream) -> PlaySupportReport,
+	): PlayableMediaStream?
+
+	/**
+	 * Request the playback info for an entry ahead of time so resolving its stream doesn't have to wait
+	 * for the server. Does nothing without a [PlaybackInfoCache] or when the entry is direct played
+	 * without the playback info.
+	 */
+	suspend fun prefetchPlaybackInfo(queueEntry: QueueEntry) {
+		if (playbackInfoCache == null) return
+
+		val baseItem = queueEntry.baseItem
+		if (baseItem == null || !canResolve(queueEntry)) return
+		if (streamCache?.get(MediaStreamCache.Key(baseItem.id, queueEntry.mediaSourceId)) != null) return
+		if (getDirectPlayMediaInfo(baseItem, queueEntry.mediaSourceId) != null) return
+
+		playbackInfoCache.getOrLoad(PlaybackInfoCache.Key(baseItem.id, queueEntry.mediaSourceId)) {
+			requestPlaybackInfo(baseItem, queueEntry.mediaSourceId)
+		}
+	}
+
+	/**
+	 * Get the media info to direct play [item] without requesting the playback info from the server.
+	 * Returns null when the server needs to decide how to play the item.
+	 */
+	protected suspend fun getDirectPlayMediaInfo(
+		item: BaseItemDto,
+		mediaSourceId: String?,
+	): MediaInfo? = directPlayDecisionEngine.getDirectPlayMediaInfo(
+		item = item,
+		mediaSourceId = mediaSourceId,
+		type = directPlayType,
+		policy = getUserPolicy(),
+		maxBitrate = getMaxStreamingBitrate(),
+	)
+
+	/**
+	 * Test if the media source of this media info can be direct played by the backend and create the
+	 * stream using the url from [getUrl].
+	 */
+	protected fun MediaInfo.resolveDirectPlayStream(
+		queueEntry: QueueEntry,
+		testStream: (stream: MediaStream) -> PlaySupportReport,
+		getUrl: MediaInfo.() -> String,
+	): PlayableMediaStream? {
+		val directPlayStream = BasicMediaStream(
+			identifier = playSessionId,
+			conversionMethod = MediaConversionMethod.None,
+			container = getMediaStreamContainer(),
+			tracks = getTracks()
+		)
+		if (!testStream(directPlayStream).canPlay) return null
+
+		return directPlayStream.toPlayableMediaStream(
+			queueEntry = queueEntry,
+			url = getUrl(),
+		)
+	}
+
+	/**
+	 * Get the policy of the current user, loaded once per access token. Returns null when it could not
+	 * be loaded so the server decides how to play items.
+	 */
+	private suspend fun getUserPolicy(): UserPolicy? {
+		val accessToken = api.accessToken
+		userPolicy?.let { (policyAccessToken, policy) -> if (policyAccessToken == accessToken) return policy }
+
+		val policy = try {
+			api.userApi.getCurrentUser().content.policy
+		} catch (err: CancellationException) {
+			throw err
+		} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+			Timber.w(err, "Failed to get user policy")
+			return null
+		}
+
+		userPolicy = accessToken to policy
+		return policy
+	}
+
+	/**
+	 * Get the max streaming bitrate of the profile, limited by the measured throughput to the server.
+	 */
+	private fun getMaxStreamingBitrate(): Int? = bandwidthProbe
+		?.getMaxStreamingBitrate(profile.maxStreamingBitrate)
+		?: profile.maxStreamingBitrate
+
 	protected suspend fun getPlaybackInfo(
 		item: BaseItemDto,
 		mediaSourceId: String? = null,
+	): MediaInfo {
+		if (playbackInfoCache == null) return requestPlaybackInfo(item, mediaSourceId)
+
+		// Each response has its own play session so it is only used once
+		val key = PlaybackInfoCache.Key(item.id, mediaSourceId)
+		return playbackInfoCache.getOrLoad(key) { requestPlaybackInfo(item, mediaSourceId) }
+			.also { playbackInfoCache.invalidate(key) }
+	}
+
+	private suspend fun requestPlaybackInfo(
+		item: BaseItemDto,
+		mediaSourceId: String?,
 	): MediaInfo {
 		val response by api.mediaInfoApi.getPostedPlaybackInfo(
 			itemId = item.id,
 			data = PlaybackInfoDto(
-				maxStreamingBitrate = profile.maxStreamingBitrate,
+				maxStreamingBitrate = getMaxStreamingBitrate(),
 				mediaSourceId = mediaSourceId,
 				deviceProfile = profile,
 				enableDirectPlay = true,
@@ -0,0 +1,59 @@
+package org.jellyfin.playback.jellyfin.mediastream
+
+import org.jellyfin.playback.core.mediastream.PlayableMediaStream
+import java.util.UUID
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * Bounded cache of resolved media streams keyed by item and media source. Streams expire after
+ * [timeToLive] and are invalidated when their play session ends.
+ */
+class MediaStreamCache(
+	private val maxSize: Int = 20,
+	private val timeToLive: Duration = 10.minutes,
+	private val timeSource: TimeSource = TimeSource.Monotonic,
+) {
+	data class Key(
+		val itemId: UUID,
+		val mediaSourceId: String?,
+	)
+
+	private class CachedStream(
+		val stream: PlayableMediaStream,
+		val expiration: TimeMark,
+	)
+
+	// Least recently used streams are evicted first
+	private val streams = object : LinkedHashMap<Key, CachedStream>(maxSize, 0.75f, true) {
+		override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, CachedStream>?) =
+			size > maxSize
+	}
+
+	operator fun get(key: Key): PlayableMediaStream? = synchronized(streams) {
+		val cached = streams[key] ?: return null
+		if (cached.expiration.hasPassedNow()) {
+			streams.remove(key)
+			return null
+		}
+
+		cached.stream
+	}
+
+	operator fun set(key: Key, stream: PlayableMediaStream) = synchronized(streams) {
+		streams[key] = CachedStream(stream, timeSource.markNow() + timeToLive)
+	}
+
+	/**
+	 * Remove all streams using the play session with [playSessionId].
+	 */
+	fun invalidate(playSessionId: String) = synchronized(streams) {
+		streams.values.removeAll { it.stream.identifier == playSessionId }
+	}
+
+	fun clear() = synchronized(streams) {
+		streams.clear()
+	}
+}
@@ -0,0 +1,83 @@
+package org.jellyfin.playback.jellyfin.mediastream
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import java.util.UUID
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * Short-lived cache of playback info responses shared between the stream resolvers and the
+ * [PlaybackInfoPrefetchService]. Requests for the same item and media source that are in-flight are
+ * shared.
+ */
+class PlaybackInfoCache(
+	private val maxSize: Int = 50,
+	private val timeToLive: Duration = 2.minutes,
+	private val timeSource: TimeSource = TimeSource.Monotonic,
+) {
+	data class Key(
+		val itemId: UUID,
+		val mediaSourceId: String?,
+	)
+
+	private class CachedMediaInfo(
+		val result: CompletableDeferred<JellyfinStreamResolver.MediaInfo>,
+		val expiration: TimeMark,
+	)
+
+	// Least recently used responses are evicted first
+	private val mediaInfos = object : LinkedHashMap<Key, CachedMediaInfo>(maxSize, 0.75f, true) {
+		override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, CachedMediaInfo>?) =
+			size > maxSize
+	}
+
+	operator fun contains(key: Key): Boolean = synchronized(mediaInfos) {
+		mediaInfos[key]?.takeIf { !it.expiration.hasPassedNow() } != null
+	}
+
+	fun invalidate(key: Key) {
+		synchronized(mediaInfos) { mediaInfos.remove(key) }
+	}
+
+	fun clear() {
+		synchronized(mediaInfos) { mediaInfos.clear() }
+	}
+
+	/**
+	 * Get the cached or in-flight media info for [key], or [load] it and cache the result.
+	 */
+	suspend fun getOrLoad(
+		key: Key,
+		load: suspend () -> JellyfinStreamResolver.MediaInfo,
+	): JellyfinStreamResolver.MediaInfo {
+		var isOwner = false
+		val cached = synchronized(mediaInfos) {
+			mediaInfos[key]?.takeIf { !it.expiration.hasPassedNow() }
+				?: CachedMediaInfo(CompletableDeferred(), timeSource.markNow() + timeToLive).also {
+					mediaInfos[key] = it
+					isOwner = true
+				}
+		}
+
+		if (!isOwner) {
+			// Load again when the shared request failed
+			return runCatching { cached.result.await() }.getOrElse { err ->
+				if (err is CancellationException && !cached.result.isCancelled) throw err
+				load()
+			}
+		}
+
+		return try {
+			load().also { cached.result.complete(it) }
+		} catch (err: Throwable) {
+			synchronized(mediaInfos) {
+				if (mediaInfos[key] == cached) mediaInfos.remove(key)
+			}
+			cached.result.completeExceptionally(err)
+			throw err
+		}
+	}
+}
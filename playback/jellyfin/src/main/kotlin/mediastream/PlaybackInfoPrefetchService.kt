@@ -0,0 +1,49 @@
+package org.jellyfin.playback.jellyfin.mediastream
+
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import org.jellyfin.playback.core.plugin.PlayerService
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.queue.queue
+import timber.log.Timber
+
+/**
+ * Requests the playback info for the next [amount] queue entries whenever the current entry changes,
+ * at most [parallelism] requests run at the same time. The results are cached in the
+ * [PlaybackInfoCache] of the [resolvers].
+ */
+class PlaybackInfoPrefetchService(
+	private val resolvers: Collection<JellyfinStreamResolver>,
+	private val amount: Int = 5,
+	parallelism: Int = 3,
+) : PlayerService() {
+	private val semaphore = Semaphore(parallelism)
+	private val pendingEntries = mutableSetOf<QueueEntry>()
+
+	override suspend fun onInitialize() {
+		manager.queue.entry.collectLatest { entry ->
+			if (entry == null) return@collectLatest
+
+			for (nextEntry in manager.queue.peekNext(amount)) prefetch(nextEntry)
+		}
+	}
+
+	private fun prefetch(entry: QueueEntry) {
+		val resolver = resolvers.firstOrNull { it.canResolve(entry) } ?: return
+		if (!synchronized(pendingEntries) { pendingEntries.add(entry) }) return
+
+		// Requests are not cancelled when the entry changes, skipped entries will likely be resolved
+		// soon anyway
+		coroutineScope.launch {
+			try {
+				semaphore.withPermit { resolver.prefetchPlaybackInfo(entry) }
+			} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+				Timber.w(err, "Failed to prefetch playback info for $entry")
+			} finally {
+				synchronized(pendingEntries) { pendingEntries.remove(entry) }
+			}
+		}
+	}
+}
@@ -9,22 +9,30 @@ import org.jellyfin.playback.jellyfin.queue.baseItem
 import org.jellyfin.playback.jellyfin.queue.mediaSourceId
 import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.api.client.extensions.universalAudioApi
+import org.jellyfin.sdk.model.api.BaseItemDto
 import org.jellyfin.sdk.model.api.BaseItemKind
 import org.jellyfin.sdk.model.api.DeviceProfile
+import org.jellyfin.sdk.model.api.DlnaProfileType
 import org.jellyfin.sdk.model.api.MediaStreamProtocol
 
 class UniversalAudioMediaStreamResolver(
 	val api: ApiClient,
 	val profile: DeviceProfile,
-) : JellyfinStreamResolver(api, profile) {
-	override suspend fun getStream(
+	streamCache: MediaStreamCache? = null,
+	playbackInfoCache: PlaybackInfoCache? = null,
+	bandwidthProbe: BandwidthProbe? = null,
+) : JellyfinStreamResolver(api, profile, streamCache, playbackInfoCache, bandwidthProbe) {
+	override val directPlayType = DlnaProfileType.AUDIO
+
+	override fun canResolve(queueEntry: QueueEntry) = queueEntry.baseItem?.type == BaseItemKind.AUDIO
+
+	override suspend fun resolveStream(
 		queueEntry: QueueEntry,
+		baseItem: BaseItemDto,
 		testStream: (stream: MediaStream) -> PlaySupportReport,
 	): PlayableMediaStream? {
-		val baseItem = queueEntry.baseItem
-		if (baseItem == null || baseItem.type != BaseItemKind.AUDIO) return null
-
-		val mediaInfo = getPlaybackInfo(baseItem, queueEntry.mediaSourceId)
+		val mediaInfo = getDirectPlayMediaInfo(baseItem, queueEntry.mediaSourceId)
+			?: getPlaybackInfo(baseItem, queueEntry.mediaSourceId)
 
 		val url = api.universalAudioApi.getUniversalAudioStreamUrl(
 			itemId = baseItem.id,
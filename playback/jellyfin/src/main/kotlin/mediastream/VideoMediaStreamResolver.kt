@@ -3,7 +3,10 @@ package org.jellyfin.playback.jellyfin.mediastream
 import org.jellyfin.playback.core.mediastream.BasicMediaStream
 import org.jellyfin.playback.core.mediastream.MediaConversionMethod
 import org.jellyfin.playback.core.mediastream.MediaStream
+import org.jellyfin.playback.core.mediastream.MediaStreamAudioTrack
 import org.jellyfin.playback.core.mediastream.MediaStreamContainer
+import org.jellyfin.playback.core.mediastream.MediaStreamTrack
+import org.jellyfin.playback.core.mediastream.MediaStreamVideoTrack
 import org.jellyfin.playback.core.mediastream.PlayableMediaStream
 import org.jellyfin.playback.core.queue.QueueEntry
 import org.jellyfin.playback.core.support.PlaySupportReport
@@ -12,23 +15,35 @@ import org.jellyfin.playback.jellyfin.queue.mediaSourceId
 import org.jellyfin.sdk.api.client.ApiClient
 import org.jellyfin.sdk.api.client.extensions.dynamicHlsApi
 import org.jellyfin.sdk.api.client.extensions.videosApi
+import org.jellyfin.sdk.model.api.BaseItemDto
 import org.jellyfin.sdk.model.api.DeviceProfile
+import org.jellyfin.sdk.model.api.DlnaProfileType
 import org.jellyfin.sdk.model.api.MediaType
 
 class VideoMediaStreamResolver(
 	val api: ApiClient,
 	val profile: DeviceProfile,
-) : JellyfinStreamResolver(api, profile) {
+	streamCache: MediaStreamCache? = null,
+	playbackInfoCache: PlaybackInfoCache? = null,
+	bandwidthProbe: BandwidthProbe? = null,
+	private val enableAv1Transcoding: Boolean = false,
+) : JellyfinStreamResolver(api, profile, streamCache, playbackInfoCache, bandwidthProbe) {
 	companion object {
 		private val REMUX_CONTAINERS = arrayOf("mp4", "mkv")
 		private const val REMUX_SEGMENT_CONTAINER = "mp4"
+
+		// Transcode targets in order of preference, widely hardware encoded codecs first. AV1 encoding
+		// is slow on most servers so it is only requested when enabled
+		private val TRANSCODE_VIDEO_CODECS = arrayOf("h264", "hevc")
+		private const val TRANSCODE_AV1_VIDEO_CODEC = "av1"
+		private val TRANSCODE_AUDIO_CODECS = arrayOf("eac3", "ac3", "aac")
+		private const val TRANSCODE_FALLBACK_VIDEO_CODEC = "h264"
+		private const val TRANSCODE_FALLBACK_AUDIO_CODEC = "aac"
 	}
 
-	private fun MediaInfo.getDirectPlayStream() = BasicMediaStream(
-		identifier = playSessionId,
-		conversionMethod = MediaConversionMethod.None,
-		container = getMediaStreamContainer(),
-		tracks = getTracks()
+	private data class TranscodeTarget(
+		val videoCodecs: List<String>,
+		val audioCodecs: List<String>,
 	)
 
 	private fun MediaInfo.getRemuxStream(container: String) = BasicMediaStream(
@@ -48,28 +63,85 @@ class VideoMediaStreamResolver(
 		tracks = emptyList()
 	)
 
-	override suspend fun getStream(
+	private fun MediaInfo.getDirectPlayUrl(baseItem: BaseItemDto) = api.videosApi.getVideoStreamUrl(
+		itemId = baseItem.id,
+		mediaSourceId = mediaSource.id,
+		playSessionId = playSessionId,
+		static = true,
+	)
+
+	private fun MediaInfo.testCodec(
+		track: MediaStreamTrack,
+		testStream: (stream: MediaStream) -> PlaySupportReport,
+	) = testStream(
+		BasicMediaStream(
+			identifier = playSessionId,
+			conversionMethod = MediaConversionMethod.Transcode,
+			container = MediaStreamContainer(format = REMUX_SEGMENT_CONTAINER),
+			tracks = listOf(track),
+		)
+	).canPlay
+
+	/**
+	 * Rank the codecs to request from the server using the backend support. The codecs of the source
+	 * are preferred when supported so the server can copy the stream instead of encoding it, this
+	 * includes AV1. Only known transcode targets are requested as the server encodes to the first codec
+	 * when it can't copy.
+	 */
+	private fun MediaInfo.getTranscodeTarget(
+		testStream: (stream: MediaStream) -> PlaySupportReport,
+	): TranscodeTarget {
+		val tracks = getTracks()
+		val sourceVideoCodec = tracks.filterIsInstance<MediaStreamVideoTrack>().firstOrNull()?.codec
+		val sourceAudioTrack = tracks.filterIsInstance<MediaStreamAudioTrack>().firstOrNull()
+
+		val transcodeVideoCodecs = when (enableAv1Transcoding) {
+			true -> TRANSCODE_VIDEO_CODECS + TRANSCODE_AV1_VIDEO_CODEC
+			false -> TRANSCODE_VIDEO_CODECS
+		}
+		val copyVideoCodecs = TRANSCODE_VIDEO_CODECS + TRANSCODE_AV1_VIDEO_CODEC
+
+		val videoCodecs = listOfNotNull(sourceVideoCodec?.takeIf { it in copyVideoCodecs })
+			.plus(transcodeVideoCodecs)
+			.distinct()
+			.filter { codec -> testCodec(MediaStreamVideoTrack(codec = codec), testStream) }
+			.ifEmpty { listOf(TRANSCODE_FALLBACK_VIDEO_CODEC) }
+
+		val audioCodecs = listOfNotNull(sourceAudioTrack?.codec?.takeIf { it in TRANSCODE_AUDIO_CODECS })
+			.plus(TRANSCODE_AUDIO_CODECS)
+			.distinct()
+			.filter { codec ->
+				val track = MediaStreamAudioTrack(
+					codec = codec,
+					bitrate = 0,
+					channels = sourceAudioTrack?.channels ?: 2,
+					sampleRate = 0,
+				)
+				testCodec(track, testStream)
+			}
+			.ifEmpty { listOf(TRANSCODE_FALLBACK_AUDIO_CODEC) }
+
+		return TranscodeTarget(videoCodecs, audioCodecs)
+	}
+
+	override val directPlayType = DlnaProfileType.VIDEO
+
+	override fun canResolve(queueEntry: QueueEntry) = queueEntry.baseItem?.mediaType == MediaType.VIDEO
+
+	override suspend fun resolveStream(
 		queueEntry: QueueEntry,
+		baseItem: BaseItemDto,
 		testStream: (stream: MediaStream) -> PlaySupportReport,
 	): PlayableMediaStream? {
-		val baseItem = queueEntry.baseItem
-		if (baseItem == null || baseItem.mediaType != MediaType.VIDEO) return null
+		// Direct play using the media sources of the item when possible to skip the playback info request
+		getDirectPlayMediaInfo(baseItem, queueEntry.mediaSourceId)
+			?.resolveDirectPlayStream(queueEntry, testStream) { getDirectPlayUrl(baseItem) }
+			?.let { return it }
 
 		val mediaInfo = getPlaybackInfo(baseItem, queueEntry.mediaSourceId)
 
 		// Test for direct play support
-		val directPlayStream = mediaInfo.getDirectPlayStream()
-		if (testStream(directPlayStream).canPlay) {
-			return directPlayStream.toPlayableMediaStream(
-				queueEntry = queueEntry,
-				url = api.videosApi.getVideoStreamUrl(
-					itemId = baseItem.id,
-					mediaSourceId = mediaInfo.mediaSource.id,
-					playSessionId = mediaInfo.playSessionId,
-					static = true,
-				)
-			)
-		}
+		mediaInfo.resolveDirectPlayStream(queueEntry, testStream) { getDirectPlayUrl(baseItem) }?.let { return it }
 
 		// Try remuxing
 		if (mediaInfo.mediaSource.supportsDirectStream) {
@@ -92,6 +164,7 @@ class VideoMediaStreamResolver(
 		// Fallback to provided transcode
 		if (mediaInfo.mediaSource.supportsTranscoding) {
 			val transcodeStream = mediaInfo.getTranscodeStream()
+			val transcodeTarget = mediaInfo.getTranscodeTarget(testStream)
 
 			// Skip testing transcode stream because we lack the information to do so
 			return transcodeStream.toPlayableMediaStream(
@@ -102,8 +175,10 @@ class VideoMediaStreamResolver(
 					playSessionId = mediaInfo.playSessionId,
 					tag = mediaInfo.mediaSource.eTag,
 					segmentContainer = REMUX_SEGMENT_CONTAINER,
-					videoCodec = "h264",
-					audioCodec = "aac",
+					videoCodec = transcodeTarget.videoCodecs.joinToString(","),
+					audioCodec = transcodeTarget.audioCodecs.joinToString(","),
+					allowVideoStreamCopy = true,
+					allowAudioStreamCopy = true,
 				).appendAccessToken()
 			)
 		}
@@ -0,0 +1,117 @@
+package org.jellyfin.playback.jellyfin.playsession
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import kotlinx.serialization.SerializationException
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import org.jellyfin.sdk.api.client.exception.InvalidStatusException
+import timber.log.Timber
+import java.io.File
+
+/**
+ * Write-behind journal for play session reports that could not be sent. Reports are stored as one
+ * JSON object per line and replayed in order. Only the latest progress report of a play session is
+ * kept and the oldest reports are dropped when the journal contains more than [maxSize] reports.
+ *
+ * Reports are partitioned so they are only replayed to the server and user they were created for.
+ */
+class PlaySessionJournal(
+	private val file: File,
+	private val maxSize: Int = 100,
+) {
+	@Serializable
+	private data class Entry(
+		val partition: String,
+		val report: PlaySessionReport,
+	)
+
+	private val lock = Mutex()
+	private val json = Json { ignoreUnknownKeys = true }
+	private var entries: MutableList<Entry>? = null
+
+	suspend fun isEmpty(partition: String): Boolean = lock.withLock {
+		load().none { it.partition == partition }
+	}
+
+	suspend fun append(partition: String, report: PlaySessionReport) = lock.withLock {
+		val entries = load()
+		if (report is PlaySessionReport.Progress) {
+			entries.removeAll { entry ->
+				entry.partition == partition &&
+					entry.report is PlaySessionReport.Progress &&
+					entry.report.playSessionId == report.playSessionId
+			}
+		}
+		entries.add(Entry(partition, report))
+		while (entries.size > maxSize) entries.removeAt(0)
+		write(entries)
+	}
+
+	/**
+	 * Send all journaled reports of [partition] in order using [send]. Reports rejected by the server
+	 * are dropped, replaying stops at the first report that fails for another reason. Returns true
+	 * when the journal contains no reports for [partition] afterwards.
+	 */
+	suspend fun replay(
+		partition: String,
+		send: suspend (report: PlaySessionReport) -> Unit,
+	): Boolean = lock.withLock {
+		val entries = load()
+		var changed = false
+
+		try {
+			while (true) {
+				val entry = entries.firstOrNull { it.partition == partition } ?: break
+
+				try {
+					send(entry.report)
+				} catch (err: InvalidStatusException) {
+					Timber.w(err, "Dropping play session report rejected by the server")
+				}
+
+				entries.remove(entry)
+				changed = true
+			}
+		} catch (err: CancellationException) {
+			throw err
+		} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+			Timber.w(err, "Failed to replay play session report")
+		} finally {
+			if (changed) withContext(NonCancellable) { write(entries) }
+		}
+
+		entries.none { it.partition == partition }
+	}
+
+	private suspend fun load(): MutableList<Entry> = entries ?: withContext(Dispatchers.IO) {
+		if (!file.exists()) return@withContext mutableListOf()
+
+		file.readLines()
+			.filter { it.isNotBlank() }
+			.mapNotNull { line ->
+				try {
+					json.decodeFromString(Entry.serializer(), line)
+				} catch (err: SerializationException) {
+					Timber.w(err, "Dropping unreadable play session report")
+					null
+				}
+			}
+			.toMutableList()
+	}.also { entries = it }
+
+	private suspend fun write(entries: List<Entry>) = withContext(Dispatchers.IO) {
+		if (entries.isEmpty()) {
+			file.delete()
+		} else {
+			file.parentFile?.mkdirs()
+			file.writeText(entries.joinToString(separator = "\n", postfix = "\n") { entry ->
+				json.encodeToString(Entry.serializer(), entry)
+			})
+		}
+	}
+}
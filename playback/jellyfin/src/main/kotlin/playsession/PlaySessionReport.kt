@@ -0,0 +1,33 @@
+package org.jellyfin.playback.jellyfin.playsession
+
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+import org.jellyfin.sdk.model.api.PlaybackProgressInfo
+import org.jellyfin.sdk.model.api.PlaybackStartInfo
+import org.jellyfin.sdk.model.api.PlaybackStopInfo
+
+/**
+ * A single report about a play session sent to the server.
+ */
+@Serializable
+sealed interface PlaySessionReport {
+	val playSessionId: String?
+
+	@Serializable
+	@SerialName("start")
+	data class Start(val info: PlaybackStartInfo) : PlaySessionReport {
+		override val playSessionId get() = info.playSessionId
+	}
+
+	@Serializable
+	@SerialName("progress")
+	data class Progress(val info: PlaybackProgressInfo) : PlaySessionReport {
+		override val playSessionId get() = info.playSessionId
+	}
+
+	@Serializable
+	@SerialName("stop")
+	data class Stop(val info: PlaybackStopInfo) : PlaySessionReport {
+		override val playSessionId get() = info.playSessionId
+	}
+}
@@ -1,18 +1,27 @@
 package org.jellyfin.playback.jellyfin.playsession
 
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.plus
 import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeoutOrNull
 import org.jellyfin.playback.core.mediastream.MediaConversionMethod
 import org.jellyfin.playback.core.mediastream.mediaStream
 import org.jellyfin.playback.core.model.PlayState
 import org.jellyfin.playback.core.model.RepeatMode
 import org.jellyfin.playback.core.plugin.PlayerService
+import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.queue.metadata
 import org.jellyfin.playback.core.queue.queue
+import org.jellyfin.playback.jellyfin.mediastream.MediaStreamCache
 import org.jellyfin.playback.jellyfin.queue.baseItem
 import org.jellyfin.sdk.api.client.ApiClient
+import org.jellyfin.sdk.api.client.exception.InvalidStatusException
 import org.jellyfin.sdk.api.client.extensions.playStateApi
 import org.jellyfin.sdk.model.api.PlayMethod
 import org.jellyfin.sdk.model.api.PlaybackOrder
@@ -21,23 +30,96 @@ import org.jellyfin.sdk.model.api.PlaybackStartInfo
 import org.jellyfin.sdk.model.api.PlaybackStopInfo
 import org.jellyfin.sdk.model.api.QueueItem
 import org.jellyfin.sdk.model.extensions.inWholeTicks
+import timber.log.Timber
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicBoolean
 import kotlin.math.roundToInt
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
 import org.jellyfin.sdk.model.api.RepeatMode as SdkRepeatMode
 
+/**
+ * Reports the play session to the server. Reports are sent in order by a single worker so they never
+ * block playback. Progress updates requested within [updateWindow] are coalesced into a single report
+ * containing the latest state. Reports that fail to send because the server is unreachable are written
+ * to the [journal] and replayed once the server is reachable again, reports rejected by the server
+ * are dropped.
+ */
 class PlaySessionService(
 	private val api: ApiClient,
+	private val streamCache: MediaStreamCache? = null,
+	private val journal: PlaySessionJournal? = null,
+	private val updateWindow: Duration = 1.seconds,
 ) : PlayerService() {
+	private sealed interface PendingReport {
+		data class Send(val report: PlaySessionReport) : PendingReport
+		data object Update : PendingReport
+	}
+
+	private data class NowPlayingQueue(
+		val entry: QueueEntry,
+		val playbackOrder: org.jellyfin.playback.core.model.PlaybackOrder,
+		val repeatMode: RepeatMode,
+		val items: List<QueueItem>,
+	)
+
+	private val pendingReports = Channel<PendingReport>(Channel.UNLIMITED)
+	private val updatePending = AtomicBoolean(false)
+	private var nowPlayingQueue: NowPlayingQueue? = null
+	private var activePlaySessionId: String? = null
+
+	// The entry of the started play session, only accessed from the main thread
+	private var startedEntry: QueueEntry? = null
+
 	override suspend fun onInitialize() {
 		state.playState.onEach { playState ->
 			when (playState) {
-				PlayState.PLAYING -> sendStreamStart()
-				PlayState.STOPPED -> sendStreamStop()
-				PlayState.PAUSED -> sendStreamUpdate()
-				PlayState.ERROR -> sendStreamStop()
+				PlayState.PLAYING -> when (startedEntry) {
+					manager.queue.entry.value -> sendUpdateIfActive()
+					else -> sendStartReport()
+				}
+
+				PlayState.STOPPED, PlayState.ERROR -> sendStopReport(startedEntry ?: manager.queue.entry.value, getPosition())
+
+				PlayState.PAUSED -> sendUpdateIfActive()
 			}
-		}.launchIn(coroutineScope)
+		}.launchIn(coroutineScope + Dispatchers.Main)
+
+		// The backend continues with a prepared entry without changing the play state, so the play
+		// session of the previous entry ends when the entry changes
+		manager.queue.entry.onEach { entry ->
+			val previousEntry = startedEntry
+			if (previousEntry == null || previousEntry == entry) return@onEach
+
+			val position = when {
+				previousEntry.mediaStream != null && previousEntry.mediaStream == state.endedMediaStream.value -> previousEntry.metadata.duration
+				else -> getPosition()
+			}
+			sendStopReport(previousEntry, position)
+
+			if (entry != null && state.playState.value == PlayState.PLAYING) sendStartReport()
+		}.launchIn(coroutineScope + Dispatchers.Main)
+
+		coroutineScope.launch { processReports() }
+	}
+
+	private suspend fun sendStartReport() {
+		val entry = manager.queue.entry.value ?: return
+		val report = createStartReport(entry) ?: return
+
+		startedEntry = entry
+		setActivePlaySession(report.playSessionId)
+		pendingReports.send(PendingReport.Send(report))
+	}
+
+	private suspend fun sendStopReport(entry: QueueEntry?, position: Duration?) {
+		startedEntry = null
+		entry?.let { createStopReport(it, position) }?.let { pendingReports.send(PendingReport.Send(it)) }
+		setActivePlaySession(null)
 	}
 
+	private suspend fun getPosition() = withContext(Dispatchers.Main) { state.positionInfo.active }
+
 	private val MediaConversionMethod.playMethod
 		get() = when (this) {
 			MediaConversionMethod.None -> PlayMethod.DIRECT_PLAY
@@ -52,25 +134,131 @@ class PlaySessionService(
 			RepeatMode.REPEAT_ENTRY_INFINITE -> SdkRepeatMode.REPEAT_ALL
 		}
 
-	suspend fun sendUpdateIfActive() {
-		coroutineScope.launch { sendStreamUpdate() }
+	private val org.jellyfin.playback.core.model.PlaybackOrder.remotePlaybackOrder
+		get() = when (this) {
+			org.jellyfin.playback.core.model.PlaybackOrder.DEFAULT -> PlaybackOrder.DEFAULT
+			org.jellyfin.playback.core.model.PlaybackOrder.RANDOM -> PlaybackOrder.SHUFFLE
+			org.jellyfin.playback.core.model.PlaybackOrder.SHUFFLE -> PlaybackOrder.SHUFFLE
+		}
+
+	// Streams can't be reused once their play session ends, which happens when playback stops or a
+	// different play session is started
+	private fun setActivePlaySession(playSessionId: String?) {
+		val previousPlaySessionId = activePlaySessionId
+		if (previousPlaySessionId != null && previousPlaySessionId != playSessionId) {
+			streamCache?.invalidate(previousPlaySessionId)
+		}
+
+		activePlaySessionId = playSessionId
+	}
+
+	/**
+	 * Request a progress report with the current state. Requests are coalesced, this function returns
+	 * immediately.
+	 */
+	fun sendUpdateIfActive() {
+		if (updatePending.compareAndSet(false, true)) pendingReports.trySend(PendingReport.Update)
+	}
+
+	/**
+	 * Journal partition for the server and user of the current session. The access token is hashed so
+	 * it is not written to the journal.
+	 */
+	private fun getJournalPartition(): String? {
+		val baseUrl = api.baseUrl ?: return null
+		val accessToken = api.accessToken ?: return null
+
+		return MessageDigest.getInstance("SHA-256")
+			.digest("$baseUrl|$accessToken".toByteArray())
+			.joinToString("") { "%02x".format(it) }
 	}
 
-	private suspend fun getQueue(): List<QueueItem> {
+	private suspend fun processReports() {
+		var journalPartition = getJournalPartition()
+		var journalEmpty = journal == null || journalPartition == null || journal.isEmpty(journalPartition)
+
+		while (true) {
+			// Retry the journal periodically while it contains reports
+			val pendingReport = when {
+				journalEmpty -> pendingReports.receive()
+				else -> withTimeoutOrNull(JOURNAL_RETRY_INTERVAL) { pendingReports.receive() }
+			}
+
+			// Only replay reports created for the current session
+			val partition = getJournalPartition()
+			if (partition != journalPartition) {
+				journalPartition = partition
+				journalEmpty = journal == null || partition == null || journal.isEmpty(partition)
+			}
+
+			if (!journalEmpty && journal != null && partition != null) {
+				journalEmpty = journal.replay(partition) { it.send() }
+			}
+
+			val report = when (pendingReport) {
+				null -> null
+				is PendingReport.Send -> pendingReport.report
+				PendingReport.Update -> {
+					delay(updateWindow)
+					updatePending.set(false)
+					createProgressReport()
+				}
+			} ?: continue
+
+			// Keep the order of reports while the journal is not empty
+			if (!journalEmpty && journal != null && partition != null) {
+				journal.append(partition, report)
+				continue
+			}
+
+			try {
+				report.send()
+			} catch (err: InvalidStatusException) {
+				// Sending the report again would fail the same way
+				Timber.w(err, "Play session report rejected by the server")
+			} catch (err: CancellationException) {
+				throw err
+			} catch (@Suppress("TooGenericExceptionCaught") err: Exception) {
+				Timber.w(err, "Failed to send play session report")
+
+				if (journal != null && partition != null) {
+					journal.append(partition, report)
+					journalEmpty = false
+				}
+			}
+		}
+	}
+
+	private suspend fun PlaySessionReport.send() {
+		when (this) {
+			is PlaySessionReport.Start -> api.playStateApi.reportPlaybackStart(info)
+			is PlaySessionReport.Progress -> api.playStateApi.reportPlaybackProgress(info)
+			is PlaySessionReport.Stop -> api.playStateApi.reportPlaybackStopped(info)
+		}
+	}
+
+	private suspend fun getQueue(entry: QueueEntry): List<QueueItem> {
+		val playbackOrder = state.playbackOrder.value
+		val repeatMode = state.repeatMode.value
+		nowPlayingQueue
+			?.takeIf { it.entry == entry && it.playbackOrder == playbackOrder && it.repeatMode == repeatMode }
+			?.let { return it.items }
+
 		// The queues are lazy loaded so we only load a small amount of items to set as queue on the
 		// backend.
-		return manager.queue
+		val items = manager.queue
 			.peekNext(15)
 			.mapNotNull { it.baseItem }
 			.map { QueueItem(id = it.id, playlistItemId = it.playlistItemId) }
+		nowPlayingQueue = NowPlayingQueue(entry, playbackOrder, repeatMode, items)
+		return items
 	}
 
-	private suspend fun sendStreamStart() {
-		val entry = manager.queue.entry.value ?: return
-		val stream = entry.mediaStream ?: return
-		val item = entry.baseItem ?: return
+	private suspend fun createStartReport(entry: QueueEntry): PlaySessionReport? {
+		val stream = entry.mediaStream ?: return null
+		val item = entry.baseItem ?: return null
 
-		api.playStateApi.reportPlaybackStart(
+		return PlaySessionReport.Start(
 			PlaybackStartInfo(
 				itemId = item.id,
 				playSessionId = stream.identifier,
@@ -83,22 +271,18 @@ class PlaySessionService(
 				positionTicks = withContext(Dispatchers.Main) { state.positionInfo.active.inWholeTicks },
 				playMethod = stream.conversionMethod.playMethod,
 				repeatMode = state.repeatMode.value.remoteRepeatMode,
-				nowPlayingQueue = getQueue(),
-				playbackOrder = when (state.playbackOrder.value) {
-					org.jellyfin.playback.core.model.PlaybackOrder.DEFAULT -> PlaybackOrder.DEFAULT
-					org.jellyfin.playback.core.model.PlaybackOrder.RANDOM -> PlaybackOrder.SHUFFLE
-					org.jellyfin.playback.core.model.PlaybackOrder.SHUFFLE -> PlaybackOrder.SHUFFLE
-				}
+				nowPlayingQueue = getQueue(entry),
+				playbackOrder = state.playbackOrder.value.remotePlaybackOrder,
 			)
 		)
 	}
 
-	private suspend fun sendStreamUpdate() {
-		val entry = manager.queue.entry.value ?: return
-		val stream = entry.mediaStream ?: return
-		val item = entry.baseItem ?: return
+	private suspend fun createProgressReport(): PlaySessionReport? {
+		val entry = manager.queue.entry.value ?: return null
+		val stream = entry.mediaStream ?: return null
+		val item = entry.baseItem ?: return null
 
-		api.playStateApi.reportPlaybackProgress(
+		return PlaySessionReport.Progress(
 			PlaybackProgressInfo(
 				itemId = item.id,
 				playSessionId = stream.identifier,
@@ -111,30 +295,29 @@ class PlaySessionService(
 				positionTicks = withContext(Dispatchers.Main) { state.positionInfo.active.inWholeTicks },
 				playMethod = stream.conversionMethod.playMethod,
 				repeatMode = state.repeatMode.value.remoteRepeatMode,
-				nowPlayingQueue = getQueue(),
-				playbackOrder = when (state.playbackOrder.value) {
-					org.jellyfin.playback.core.model.PlaybackOrder.DEFAULT -> PlaybackOrder.DEFAULT
-					org.jellyfin.playback.core.model.PlaybackOrder.RANDOM -> PlaybackOrder.SHUFFLE
-					org.jellyfin.playback.core.model.PlaybackOrder.SHUFFLE -> PlaybackOrder.SHUFFLE
-				}
+				nowPlayingQueue = getQueue(entry),
+				playbackOrder = state.playbackOrder.value.remotePlaybackOrder,
 			)
 		)
 	}
 
-	private suspend fun sendStreamStop() {
-		val entry = manager.queue.entry.value ?: return
-		val stream = entry.mediaStream ?: return
-		val item = entry.baseItem ?: return
+	private suspend fun createStopReport(entry: QueueEntry, position: Duration?): PlaySessionReport? {
+		val stream = entry.mediaStream ?: return null
+		val item = entry.baseItem ?: return null
 
-		api.playStateApi.reportPlaybackStopped(
+		return PlaySessionReport.Stop(
 			PlaybackStopInfo(
 				itemId = item.id,
 				playSessionId = stream.identifier,
 				playlistItemId = item.playlistItemId,
-				positionTicks = withContext(Dispatchers.Main) { state.positionInfo.active.inWholeTicks },
+				positionTicks = position?.inWholeTicks,
 				failed = false,
-				nowPlayingQueue = getQueue(),
+				nowPlayingQueue = getQueue(entry),
 			)
 		)
 	}
+
+	companion object {
+		private val JOURNAL_RETRY_INTERVAL = 30.seconds
+	}
 }
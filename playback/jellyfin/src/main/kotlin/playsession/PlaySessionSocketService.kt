@@ -46,36 +46,36 @@ class PlaySessionSocketService(
 					// Do nothing
 					null -> Unit
 				}
-				coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+				playSessionService.sendUpdateIfActive()
 			}
 		}.launchIn(coroutineScope)
 
 		// Volume control
 		api.webSocket.subscribeGeneralCommand(GeneralCommandType.VOLUME_UP).onEach {
 			state.volume.increaseVolume()
-			coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+			playSessionService.sendUpdateIfActive()
 		}.launchIn(coroutineScope)
 
 		api.webSocket.subscribeGeneralCommand(GeneralCommandType.VOLUME_DOWN).onEach {
 			state.volume.decreaseVolume()
-			coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+			playSessionService.sendUpdateIfActive()
 		}.launchIn(coroutineScope)
 
 		api.webSocket.subscribeGeneralCommand(GeneralCommandType.SET_VOLUME).onEach { message ->
 			@Suppress("MagicNumber")
 			val volume = message["volume"]?.toFloatOrNull()?.div(100f)
 			if (volume != null && volume in 0f..1f) state.volume.setVolume(volume)
-			coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+			playSessionService.sendUpdateIfActive()
 		}.launchIn(coroutineScope)
 
 		api.webSocket.subscribeGeneralCommand(GeneralCommandType.MUTE).onEach {
 			state.volume.mute()
-			coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+			playSessionService.sendUpdateIfActive()
 		}.launchIn(coroutineScope)
 
 		api.webSocket.subscribeGeneralCommand(GeneralCommandType.UNMUTE).onEach {
 			state.volume.unmute()
-			coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+			playSessionService.sendUpdateIfActive()
 		}.launchIn(coroutineScope)
 
 		api.webSocket.subscribeGeneralCommand(GeneralCommandType.TOGGLE_MUTE).onEach {
@@ -83,7 +83,7 @@ class PlaySessionSocketService(
 				true -> state.volume.unmute()
 				false -> state.volume.mute()
 			}
-			coroutineScope.launch { playSessionService.sendUpdateIfActive() }
+			playSessionService.sendUpdateIfActive()
 		}.launchIn(coroutineScope)
 	}
 }
@@ -0,0 +1,112 @@
+package org.jellyfin.playback.jellyfin.mediastream
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.mockk.every
+import io.mockk.mockk
+import org.jellyfin.sdk.model.api.BaseItemDto
+import org.jellyfin.sdk.model.api.DeviceProfile
+import org.jellyfin.sdk.model.api.DirectPlayProfile
+import org.jellyfin.sdk.model.api.DlnaProfileType
+import org.jellyfin.sdk.model.api.MediaProtocol
+import org.jellyfin.sdk.model.api.MediaSourceInfo
+import org.jellyfin.sdk.model.api.MediaStream
+import org.jellyfin.sdk.model.api.UserPolicy
+
+private fun createProfile(
+	containers: String? = "mkv,mp4",
+	maxStreamingBitrate: Int? = null,
+) = mockk<DeviceProfile> {
+	every { this@mockk.maxStreamingBitrate } returns maxStreamingBitrate
+	every { directPlayProfiles } returns listOf(mockk<DirectPlayProfile> {
+		every { type } returns DlnaProfileType.VIDEO
+		every { container } returns containers
+	})
+}
+
+private fun createMediaSource(
+	id: String = "source",
+	container: String = "mkv",
+	bitrate: Int? = 10_000_000,
+	protocol: MediaProtocol = MediaProtocol.FILE,
+) = mockk<MediaSourceInfo> {
+	every { this@mockk.id } returns id
+	every { this@mockk.container } returns container
+	every { this@mockk.bitrate } returns bitrate
+	every { this@mockk.protocol } returns protocol
+	every { isRemote } returns false
+	every { supportsDirectPlay } returns true
+	every { mediaStreams } returns listOf(mockk<MediaStream>())
+}
+
+private fun createItem(vararg mediaSources: MediaSourceInfo) = mockk<BaseItemDto> {
+	every { this@mockk.mediaSources } returns mediaSources.toList()
+}
+
+private fun createPolicy(
+	enableMediaPlayback: Boolean = true,
+	remoteClientBitrateLimit: Int = 0,
+) = mockk<UserPolicy> {
+	every { this@mockk.enableMediaPlayback } returns enableMediaPlayback
+	every { this@mockk.remoteClientBitrateLimit } returns remoteClientBitrateLimit
+}
+
+class DirectPlayDecisionEngineTests : FunSpec({
+	test("Direct plays supported sources") {
+		val engine = DirectPlayDecisionEngine(createProfile())
+		val mediaSource = createMediaSource()
+
+		val mediaInfo = engine.getDirectPlayMediaInfo(createItem(mediaSource), null, DlnaProfileType.VIDEO, createPolicy())
+		mediaInfo.shouldNotBeNull()
+		mediaInfo.mediaSource shouldBe mediaSource
+	}
+
+	test("Selects the requested media source") {
+		val engine = DirectPlayDecisionEngine(createProfile())
+		val mediaSource = createMediaSource(id = "second")
+		val item = createItem(createMediaSource(id = "first"), mediaSource)
+
+		engine.getDirectPlayMediaInfo(item, "second", DlnaProfileType.VIDEO, createPolicy())?.mediaSource shouldBe mediaSource
+		engine.getDirectPlayMediaInfo(item, "third", DlnaProfileType.VIDEO, createPolicy()).shouldBeNull()
+	}
+
+	test("Leaves remote and unsupported sources to the server") {
+		val engine = DirectPlayDecisionEngine(createProfile())
+
+		val httpItem = createItem(createMediaSource(protocol = MediaProtocol.HTTP))
+		engine.getDirectPlayMediaInfo(httpItem, null, DlnaProfileType.VIDEO, createPolicy()).shouldBeNull()
+
+		val aviItem = createItem(createMediaSource(container = "avi"))
+		engine.getDirectPlayMediaInfo(aviItem, null, DlnaProfileType.VIDEO, createPolicy()).shouldBeNull()
+	}
+
+	test("Leaves sources exceeding the max bitrate to the server") {
+		val engine = DirectPlayDecisionEngine(createProfile(maxStreamingBitrate = 8_000_000))
+		val item = createItem(createMediaSource(bitrate = 10_000_000))
+
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, createPolicy()).shouldBeNull()
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, createPolicy(), maxBitrate = 20_000_000).shouldNotBeNull()
+	}
+
+	test("Direct plays sources with unknown bitrate when there is a max bitrate") {
+		val engine = DirectPlayDecisionEngine(createProfile(maxStreamingBitrate = 8_000_000))
+		val item = createItem(createMediaSource(bitrate = null))
+
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, createPolicy()).shouldNotBeNull()
+	}
+
+	test("Leaves sources to the server when the user policy is unknown or restricts them") {
+		val engine = DirectPlayDecisionEngine(createProfile())
+		val item = createItem(createMediaSource(bitrate = 10_000_000))
+
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, null).shouldBeNull()
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, createPolicy(enableMediaPlayback = false)).shouldBeNull()
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, createPolicy(remoteClientBitrateLimit = 8_000_000)).shouldBeNull()
+		engine.getDirectPlayMediaInfo(item, null, DlnaProfileType.VIDEO, createPolicy(remoteClientBitrateLimit = 20_000_000)).shouldNotBeNull()
+
+		val unknownBitrateItem = createItem(createMediaSource(bitrate = null))
+		engine.getDirectPlayMediaInfo(unknownBitrateItem, null, DlnaProfileType.VIDEO, createPolicy(remoteClientBitrateLimit = 20_000_000)).shouldBeNull()
+	}
+})
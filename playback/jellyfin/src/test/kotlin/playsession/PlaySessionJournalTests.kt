@@ -0,0 +1,114 @@
+package org.jellyfin.playback.jellyfin.playsession
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.engine.spec.tempfile
+import io.kotest.matchers.shouldBe
+import org.jellyfin.sdk.api.client.exception.InvalidStatusException
+import org.jellyfin.sdk.model.api.PlayMethod
+import org.jellyfin.sdk.model.api.PlaybackOrder
+import org.jellyfin.sdk.model.api.PlaybackProgressInfo
+import org.jellyfin.sdk.model.api.PlaybackStopInfo
+import org.jellyfin.sdk.model.api.RepeatMode
+import java.util.UUID
+
+private fun createProgressReport(playSessionId: String, positionTicks: Long) = PlaySessionReport.Progress(
+	PlaybackProgressInfo(
+		itemId = UUID.randomUUID(),
+		playSessionId = playSessionId,
+		positionTicks = positionTicks,
+		canSeek = true,
+		isPaused = false,
+		isMuted = false,
+		playMethod = PlayMethod.DIRECT_PLAY,
+		repeatMode = RepeatMode.REPEAT_NONE,
+		playbackOrder = PlaybackOrder.DEFAULT,
+	)
+)
+
+private fun createStopReport(playSessionId: String) = PlaySessionReport.Stop(
+	PlaybackStopInfo(
+		playSessionId = playSessionId,
+		failed = false,
+	)
+)
+
+private const val PARTITION = "server-user"
+
+class PlaySessionJournalTests : FunSpec({
+	test("PlaySessionJournal replays reports in order") {
+		val file = tempfile()
+		val journal = PlaySessionJournal(file)
+		val reports = listOf(createProgressReport("a", 1), createStopReport("a"), createProgressReport("b", 2))
+		reports.forEach { journal.append(PARTITION, it) }
+
+		// Read from a new instance to verify the reports are persisted
+		val sent = mutableListOf<PlaySessionReport>()
+		PlaySessionJournal(file).replay(PARTITION) { sent.add(it) } shouldBe true
+
+		sent shouldBe reports
+		PlaySessionJournal(file).isEmpty(PARTITION) shouldBe true
+	}
+
+	test("PlaySessionJournal keeps the latest progress report of a session") {
+		val journal = PlaySessionJournal(tempfile())
+		journal.append(PARTITION, createProgressReport("a", 1))
+		journal.append(PARTITION, createProgressReport("b", 2))
+		journal.append(PARTITION, createProgressReport("a", 3))
+
+		val sent = mutableListOf<PlaySessionReport>()
+		journal.replay(PARTITION) { sent.add(it) }
+
+		sent.map { (it as PlaySessionReport.Progress).info.positionTicks } shouldBe listOf(2L, 3L)
+	}
+
+	test("PlaySessionJournal stops replaying at the first failure") {
+		val journal = PlaySessionJournal(tempfile())
+		journal.append(PARTITION, createStopReport("a"))
+		journal.append(PARTITION, createStopReport("b"))
+
+		var attempts = 0
+		journal.replay(PARTITION) { report ->
+			attempts++
+			if (report.playSessionId == "b") error("Offline")
+		} shouldBe false
+		attempts shouldBe 2
+
+		val sent = mutableListOf<String?>()
+		journal.replay(PARTITION) { sent.add(it.playSessionId) } shouldBe true
+		sent shouldBe listOf("b")
+	}
+	test("PlaySessionJournal drops reports rejected by the server") {
+		val journal = PlaySessionJournal(tempfile())
+		journal.append(PARTITION, createStopReport("a"))
+		journal.append(PARTITION, createStopReport("b"))
+
+		val sent = mutableListOf<String?>()
+		journal.replay(PARTITION) { report ->
+			if (report.playSessionId == "a") throw InvalidStatusException(404)
+			sent.add(report.playSessionId)
+		} shouldBe true
+		sent shouldBe listOf("b")
+	}
+
+	test("PlaySessionJournal only replays reports of the partition") {
+		val journal = PlaySessionJournal(tempfile())
+		journal.append("other", createStopReport("a"))
+		journal.append(PARTITION, createStopReport("b"))
+
+		val sent = mutableListOf<String?>()
+		journal.replay(PARTITION) { sent.add(it.playSessionId) } shouldBe true
+		sent shouldBe listOf("b")
+		journal.isEmpty("other") shouldBe false
+	}
+
+	test("PlaySessionJournal drops the oldest reports when full") {
+		val journal = PlaySessionJournal(tempfile(), maxSize = 2)
+		journal.append(PARTITION, createStopReport("a"))
+		journal.append(PARTITION, createStopReport("b"))
+		journal.append(PARTITION, createStopReport("c"))
+
+		val sent = mutableListOf<String?>()
+		journal.replay(PARTITION) { sent.add(it.playSessionId) }
+		sent shouldBe listOf("b", "c")
+	}
+})
@@ -2,6 +2,8 @@ package org.jellyfin.playback.media3.exoplayer
 
 import android.app.ActivityManager
 import android.content.Context
+import android.os.Handler
+import android.os.Looper
 import android.view.ViewGroup
 import androidx.annotation.OptIn
 import androidx.core.content.getSystemService
@@ -13,17 +15,20 @@ import androidx.media3.common.TrackSelectionParameters
 import androidx.media3.common.VideoSize
 import androidx.media3.common.text.CueGroup
 import androidx.media3.common.util.UnstableApi
+import androidx.media3.datasource.DataSource
 import androidx.media3.datasource.DefaultDataSource
 import androidx.media3.datasource.DefaultHttpDataSource
 import androidx.media3.exoplayer.DefaultRenderersFactory
 import androidx.media3.exoplayer.ExoPlayer
 import androidx.media3.exoplayer.source.DefaultMediaSourceFactory
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter
 import androidx.media3.exoplayer.util.EventLogger
 import androidx.media3.extractor.DefaultExtractorsFactory
 import androidx.media3.extractor.ts.TsExtractor
 import androidx.media3.ui.SubtitleView
 import org.jellyfin.playback.core.backend.BasePlayerBackend
+import org.jellyfin.playback.core.bandwidth.BandwidthEstimator
 import org.jellyfin.playback.core.mediastream.MediaStream
 import org.jellyfin.playback.core.mediastream.PlayableMediaStream
 import org.jellyfin.playback.core.mediastream.mediaStream
@@ -31,9 +36,13 @@ import org.jellyfin.playback.core.mediastream.normalizationGain
 import org.jellyfin.playback.core.model.PlayState
 import org.jellyfin.playback.core.model.PositionInfo
 import org.jellyfin.playback.core.queue.QueueEntry
+import org.jellyfin.playback.core.stats.PlayerStats
+import org.jellyfin.playback.core.support.CapabilityCache
 import org.jellyfin.playback.core.support.PlaySupportReport
 import org.jellyfin.playback.core.ui.PlayerSubtitleView
 import org.jellyfin.playback.core.ui.PlayerSurfaceView
+import org.jellyfin.playback.media3.exoplayer.cache.createMediaCacheDataSourceFactory
+import org.jellyfin.playback.media3.exoplayer.stats.ExoPlayerStatsCollector
 import org.jellyfin.playback.media3.exoplayer.support.getPlaySupportReport
 import org.jellyfin.playback.media3.exoplayer.support.toFormats
 import timber.log.Timber
@@ -44,6 +53,7 @@ import kotlin.time.Duration.Companion.milliseconds
 class ExoPlayerBackend(
 	private val context: Context,
 	private val exoPlayerOptions: ExoPlayerOptions,
+	private val bandwidthEstimator: BandwidthEstimator? = null,
 ) : BasePlayerBackend() {
 	companion object {
 		const val TS_SEARCH_BYTES_LM = TsExtractor.TS_PACKET_SIZE * 1800
@@ -53,9 +63,54 @@ class ExoPlayerBackend(
 	private var currentStream: PlayableMediaStream? = null
 	private var subtitleView: SubtitleView? = null
 	private var audioPipeline = ExoPlayerAudioPipeline()
+	private var isBuffering = false
+
+	// Renderer support depends on the extension renderer mode
+	private val formatSupportCache = CapabilityCache(
+		context = context,
+		name = if (exoPlayerOptions.preferFfmpeg) "exoplayer_ffmpeg" else "exoplayer",
+	)
+
+	private val bandwidthMeter by lazy {
+		DefaultBandwidthMeter.Builder(context).build().apply {
+			if (bandwidthEstimator != null) {
+				addEventListener(Handler(Looper.getMainLooper())) { elapsedMs, bytesTransferred, _ ->
+					// Samples are attributed to the server of the current stream
+					val url = currentStream?.url ?: return@addEventListener
+					bandwidthEstimator.addSample(url, bytesTransferred, elapsedMs.milliseconds)
+				}
+			}
+		}
+	}
+
+	private val statsCollector by lazy { ExoPlayerStatsCollector(bandwidthMeter) }
+
+	private fun createDataSourceFactory(): DataSource.Factory {
+		val dataSourceFactory = DefaultDataSource.Factory(
+			context,
+			DefaultHttpDataSource.Factory().apply {
+				exoPlayerOptions.httpConnectTimeout
+					?.inWholeMilliseconds
+					?.toInt()
+					?.let(::setConnectTimeoutMs)
+
+				exoPlayerOptions.httpReadTimeout
+					?.inWholeMilliseconds
+					?.toInt()
+					?.let(::setReadTimeoutMs)
+			}
+		)
+
+		return when (val mediaCacheOptions = exoPlayerOptions.mediaCache) {
+			null -> dataSourceFactory
+			else -> createMediaCacheDataSourceFactory(context, dataSourceFactory, mediaCacheOptions)
+		}
+	}
 
 	private val exoPlayer by lazy {
 		ExoPlayer.Builder(context)
+			.setBandwidthMeter(bandwidthMeter)
+			.setLoadControl((exoPlayerOptions.buffer ?: ExoPlayerBufferOptions.forDevice(context)).createLoadControl())
 			.setRenderersFactory(DefaultRenderersFactory(context).apply {
 				setEnableDecoderFallback(true)
 				setExtensionRendererMode(
@@ -75,20 +130,7 @@ class ExoPlayerBackend(
 				})
 			})
 			.setMediaSourceFactory(DefaultMediaSourceFactory(
-				DefaultDataSource.Factory(
-					context,
-					DefaultHttpDataSource.Factory().apply {
-						exoPlayerOptions.httpConnectTimeout
-							?.inWholeMilliseconds
-							?.toInt()
-							?.let(::setConnectTimeoutMs)
-
-						exoPlayerOptions.httpReadTimeout
-							?.inWholeMilliseconds
-							?.toInt()
-							?.let(::setReadTimeoutMs)
-					}
-				),
+				createDataSourceFactory(),
 				DefaultExtractorsFactory().apply {
 					val isLowRamDevice = context.getSystemService<ActivityManager>()?.isLowRamDevice == true
 					setTsExtractorTimestampSearchBytes(
@@ -101,10 +143,10 @@ class ExoPlayerBackend(
 					setConstantBitrateSeekingAlwaysEnabled(true)
 				}
 			))
-			.setPauseAtEndOfMediaItems(true)
 			.build()
 			.also { player ->
 				player.addListener(PlayerListener())
+				player.addAnalyticsListener(statsCollector)
 				audioPipeline.setAudioSessionId(player.audioSessionId)
 
 				if (exoPlayerOptions.enableDebugLogging) {
@@ -137,11 +179,24 @@ class ExoPlayerBackend(
 
 		override fun onPlaybackStateChanged(playbackState: Int) {
 			onIsPlayingChanged(exoPlayer.isPlaying)
+
+			// No prepared item to continue with
+			if (playbackState == Player.STATE_ENDED) currentStream?.let { listener?.onMediaStreamEnd(it) }
+
+			val buffering = playbackState == Player.STATE_BUFFERING
+			if (buffering != isBuffering) {
+				isBuffering = buffering
+				listener?.onBufferingChange(buffering)
+			}
 		}
 
-		override fun onPlayWhenReadyChanged(playWhenReady: Boolean, reason: Int) {
-			if (reason == Player.PLAY_WHEN_READY_CHANGE_REASON_END_OF_MEDIA_ITEM) {
-				listener?.onMediaStreamEnd(requireNotNull(currentStream))
+		override fun onPositionDiscontinuity(
+			oldPosition: Player.PositionInfo,
+			newPosition: Player.PositionInfo,
+			reason: Int,
+		) {
+			if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+				listener?.onSeek(newPosition.positionMs.milliseconds)
 			}
 		}
 
@@ -152,12 +207,20 @@ class ExoPlayerBackend(
 		override fun onMediaItemTransition(mediaItem: MediaItem?, reason: Int) {
 			val queueEntry = mediaItem?.localConfiguration?.tag as? QueueEntry
 			audioPipeline.normalizationGain = queueEntry?.normalizationGain
+
+			// ExoPlayer continued with the prepared item without a gap, move the queue along so
+			// playItem() finds the item already playing
+			if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO) {
+				val previousStream = currentStream
+				currentStream = queueEntry?.mediaStream
+				if (previousStream != null) listener?.onMediaStreamEnd(previousStream)
+			}
 		}
 	}
 
 	override fun supportsStream(
 		stream: MediaStream
-	): PlaySupportReport = exoPlayer.getPlaySupportReport(stream.toFormats())
+	): PlaySupportReport = exoPlayer.getPlaySupportReport(stream.toFormats(), formatSupportCache)
 
 	override fun setSurfaceView(surfaceView: PlayerSurfaceView?) {
 		exoPlayer.setVideoSurfaceView(surfaceView?.surface)
@@ -181,8 +244,10 @@ class ExoPlayerBackend(
 			setUri(stream.url)
 		}.build()
 
-		// Remove any old preloaded items (skips the first which is the playing item)
-		while (exoPlayer.mediaItemCount > 1) exoPlayer.removeMediaItem(0)
+		// Remove any old preloaded and played items (keeps the currently playing item)
+		val currentIndex = exoPlayer.currentMediaItemIndex
+		if (exoPlayer.mediaItemCount > currentIndex + 1) exoPlayer.removeMediaItems(currentIndex + 1, exoPlayer.mediaItemCount)
+		if (currentIndex > 0) exoPlayer.removeMediaItems(0, currentIndex)
 		// Add new item
 		exoPlayer.addMediaItem(mediaItem)
 
@@ -195,16 +260,17 @@ class ExoPlayerBackend(
 
 		currentStream = stream
 
-		var streamIsPrepared = false
-		repeat(exoPlayer.mediaItemCount) { index ->
-			streamIsPrepared =
-				streamIsPrepared || exoPlayer.getMediaItemAt(index).mediaId == stream.hashCode()
-					.toString()
+		val mediaId = stream.hashCode().toString()
+		var preparedIndex = (0 until exoPlayer.mediaItemCount).firstOrNull { index ->
+			exoPlayer.getMediaItemAt(index).mediaId == mediaId
 		}
 
-		if (!streamIsPrepared) prepareItem(item)
+		if (preparedIndex == null) {
+			prepareItem(item)
+			preparedIndex = exoPlayer.mediaItemCount - 1
+		}
 
-		exoPlayer.seekToNextMediaItem()
+		exoPlayer.seekToDefaultPosition(preparedIndex)
 		exoPlayer.play()
 	}
 
@@ -237,6 +303,8 @@ class ExoPlayerBackend(
 		exoPlayer.setPlaybackSpeed(speed)
 	}
 
+	override fun getStats(): PlayerStats = statsCollector.getStats(exoPlayer)
+
 	override fun getPositionInfo(): PositionInfo = PositionInfo(
 		active = exoPlayer.currentPosition.milliseconds,
 		buffer = exoPlayer.bufferedPosition.milliseconds,
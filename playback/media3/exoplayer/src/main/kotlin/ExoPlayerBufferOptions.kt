@@ -0,0 +1,122 @@
+package org.jellyfin.playback.media3.exoplayer
+
+import android.app.ActivityManager
+import android.content.Context
+import androidx.annotation.OptIn
+import androidx.core.content.getSystemService
+import androidx.media3.common.C
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.exoplayer.DefaultLoadControl
+import androidx.media3.exoplayer.LoadControl
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.seconds
+
+/**
+ * Buffer policy for the player. The buffers are allocated on the Java heap so the [targetBufferBytes]
+ * need to fit the memory available to the app.
+ */
+data class ExoPlayerBufferOptions(
+	val minBufferDuration: Duration,
+	val maxBufferDuration: Duration,
+	val bufferForPlaybackDuration: Duration,
+	val bufferForPlaybackAfterRebufferDuration: Duration,
+	/**
+	 * Maximum size of the buffer in bytes or null to calculate the size based on the selected tracks.
+	 */
+	val targetBufferBytes: Int?,
+	val backBufferDuration: Duration,
+	val prioritizeTimeOverSizeThresholds: Boolean,
+) {
+	@OptIn(UnstableApi::class)
+	companion object {
+		private const val MB = 1024 * 1024
+
+		/**
+		 * Small buffers for devices with little memory, avoids out of memory errors with high bitrate
+		 * media.
+		 */
+		val LOW_MEMORY = ExoPlayerBufferOptions(
+			minBufferDuration = 15.seconds,
+			maxBufferDuration = 30.seconds,
+			bufferForPlaybackDuration = 2500.milliseconds,
+			bufferForPlaybackAfterRebufferDuration = 5.seconds,
+			targetBufferBytes = 16 * MB,
+			backBufferDuration = Duration.ZERO,
+			prioritizeTimeOverSizeThresholds = false,
+		)
+
+		/**
+		 * The media3 defaults.
+		 */
+		val DEFAULT = ExoPlayerBufferOptions(
+			minBufferDuration = DefaultLoadControl.DEFAULT_MIN_BUFFER_MS.milliseconds,
+			maxBufferDuration = DefaultLoadControl.DEFAULT_MAX_BUFFER_MS.milliseconds,
+			bufferForPlaybackDuration = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS.milliseconds,
+			bufferForPlaybackAfterRebufferDuration = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS.milliseconds,
+			targetBufferBytes = null,
+			backBufferDuration = DefaultLoadControl.DEFAULT_BACK_BUFFER_DURATION_MS.milliseconds,
+			prioritizeTimeOverSizeThresholds = DefaultLoadControl.DEFAULT_PRIORITIZE_TIME_OVER_SIZE_THRESHOLDS,
+		)
+
+		/**
+		 * Deep forward buffers for devices with plenty of memory, allows high bitrate media to survive
+		 * longer network drops.
+		 */
+		val HIGH_MEMORY = ExoPlayerBufferOptions(
+			minBufferDuration = 60.seconds,
+			maxBufferDuration = 120.seconds,
+			bufferForPlaybackDuration = 2500.milliseconds,
+			bufferForPlaybackAfterRebufferDuration = 5.seconds,
+			targetBufferBytes = 192 * MB,
+			backBufferDuration = 30.seconds,
+			prioritizeTimeOverSizeThresholds = false,
+		)
+
+		// Physical memory sizes, devices report slightly less than the installed memory
+		private const val LOW_MEMORY_TOTAL = 1536L * MB
+		private const val HIGH_MEMORY_TOTAL = 3584L * MB
+
+		// Part of the heap the buffer may use, the app needs the rest
+		private const val MAX_HEAP_FRACTION = 4
+
+		/**
+		 * Select the buffer options based on the physical memory of the device. The heap size is not
+		 * used as large heap apps get a big heap on devices with little memory. The target buffer size
+		 * is limited to a part of the heap.
+		 */
+		fun forDevice(context: Context): ExoPlayerBufferOptions {
+			val activityManager = context.getSystemService<ActivityManager>() ?: return DEFAULT
+			val memoryInfo = ActivityManager.MemoryInfo().also(activityManager::getMemoryInfo)
+
+			val options = when {
+				activityManager.isLowRamDevice || memoryInfo.totalMem <= LOW_MEMORY_TOTAL -> LOW_MEMORY
+				memoryInfo.totalMem >= HIGH_MEMORY_TOTAL -> HIGH_MEMORY
+				else -> DEFAULT
+			}
+
+			val maxBufferBytes = (Runtime.getRuntime().maxMemory() / MAX_HEAP_FRACTION)
+				.coerceAtMost(Int.MAX_VALUE.toLong())
+				.toInt()
+			return when {
+				options.targetBufferBytes != null && options.targetBufferBytes > maxBufferBytes ->
+					options.copy(targetBufferBytes = maxBufferBytes)
+
+				else -> options
+			}
+		}
+	}
+}
+
+@OptIn(UnstableApi::class)
+fun ExoPlayerBufferOptions.createLoadControl(): LoadControl = DefaultLoadControl.Builder()
+	.setBufferDurationsMs(
+		minBufferDuration.inWholeMilliseconds.toInt(),
+		maxBufferDuration.inWholeMilliseconds.toInt(),
+		bufferForPlaybackDuration.inWholeMilliseconds.toInt(),
+		bufferForPlaybackAfterRebufferDuration.inWholeMilliseconds.toInt(),
+	)
+	.setTargetBufferBytes(targetBufferBytes ?: C.LENGTH_UNSET)
+	.setPrioritizeTimeOverSizeThresholds(prioritizeTimeOverSizeThresholds)
+	.setBackBuffer(backBufferDuration.inWholeMilliseconds.toInt(), true)
+	.build()
@@ -1,5 +1,6 @@
 package org.jellyfin.playback.media3.exoplayer
 
+import org.jellyfin.playback.media3.exoplayer.cache.MediaCacheOptions
 import kotlin.time.Duration
 
 data class ExoPlayerOptions(
@@ -7,4 +8,9 @@ data class ExoPlayerOptions(
 	val httpReadTimeout: Duration? = null,
 	val preferFfmpeg: Boolean = false,
 	val enableDebugLogging: Boolean = false,
+	val mediaCache: MediaCacheOptions? = null,
+	/**
+	 * Buffer policy, selected based on the device memory when null.
+	 */
+	val buffer: ExoPlayerBufferOptions? = null,
 )
@@ -1,11 +1,13 @@
 package org.jellyfin.playback.media3.exoplayer
 
 import android.content.Context
+import org.jellyfin.playback.core.bandwidth.BandwidthEstimator
 import org.jellyfin.playback.core.plugin.playbackPlugin
 
 fun exoPlayerPlugin(
 	androidContext: Context,
 	exoPlayerOptions: ExoPlayerOptions = ExoPlayerOptions(),
+	bandwidthEstimator: BandwidthEstimator? = null,
 ) = playbackPlugin {
-	provide(ExoPlayerBackend(androidContext, exoPlayerOptions))
+	provide(ExoPlayerBackend(androidContext, exoPlayerOptions, bandwidthEstimator))
 }
@@ -0,0 +1,154 @@
+package org.jellyfin.playback.media3.exoplayer.cache
+
+import android.content.Context
+import android.net.Uri
+import androidx.annotation.OptIn
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.database.StandaloneDatabaseProvider
+import androidx.media3.datasource.DataSink
+import androidx.media3.datasource.DataSource
+import androidx.media3.datasource.DataSpec
+import androidx.media3.datasource.TransferListener
+import androidx.media3.datasource.cache.Cache
+import androidx.media3.datasource.cache.CacheDataSink
+import androidx.media3.datasource.cache.CacheDataSource
+import androidx.media3.datasource.cache.CacheKeyFactory
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor
+import androidx.media3.datasource.cache.SimpleCache
+import java.io.File
+
+// Query parameters that change between play sessions without changing the media
+private val VOLATILE_QUERY_PARAMETERS = setOf("apikey", "api_key", "playsessionid", "deviceid")
+
+// A SimpleCache instance needs exclusive access to its directory
+private val caches = mutableMapOf<File, SimpleCache>()
+
+@OptIn(UnstableApi::class)
+private fun getCache(context: Context, directory: File, maxBytes: Long): Cache = synchronized(caches) {
+	caches.getOrPut(directory) {
+		SimpleCache(directory, LeastRecentlyUsedCacheEvictor(maxBytes), StandaloneDatabaseProvider(context))
+	}
+}
+
+/**
+ * Get a cache key for [uri] that is stable across play sessions.
+ */
+internal fun getMediaCacheKey(uri: Uri): String {
+	val parameters = uri.queryParameterNames
+		.filter { it.lowercase() !in VOLATILE_QUERY_PARAMETERS }
+		.sorted()
+
+	return uri.buildUpon()
+		.clearQuery()
+		.apply {
+			for (name in parameters) {
+				for (value in uri.getQueryParameters(name)) appendQueryParameter(name, value)
+			}
+		}
+		.build()
+		.toString()
+}
+
+private fun isAudioUri(uri: Uri) = uri.pathSegments.any { it.equals("audio", ignoreCase = true) }
+
+/**
+ * Create a data source factory that caches media from [upstreamFactory] according to [options].
+ */
+@OptIn(UnstableApi::class)
+fun createMediaCacheDataSourceFactory(
+	context: Context,
+	upstreamFactory: DataSource.Factory,
+	options: MediaCacheOptions,
+	directory: File = File(context.cacheDir, "media"),
+): DataSource.Factory {
+	val cache = getCache(context, directory, options.maxBytes)
+	val cacheFactory = CacheDataSource.Factory()
+		.setCache(cache)
+		.setUpstreamDataSourceFactory(upstreamFactory)
+		.setCacheKeyFactory(CacheKeyFactory { dataSpec -> dataSpec.key ?: getMediaCacheKey(dataSpec.uri) })
+		.setCacheWriteDataSinkFactory {
+			MaxLengthDataSink(CacheDataSink(cache, CacheDataSink.DEFAULT_FRAGMENT_SIZE), options.maxItemBytes)
+		}
+		.setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+
+	return when (options.mode) {
+		MediaCacheMode.ALL -> cacheFactory
+		MediaCacheMode.AUDIO -> DataSource.Factory {
+			SelectingDataSource(
+				cacheDataSource = cacheFactory.createDataSource(),
+				upstreamDataSource = upstreamFactory.createDataSource(),
+				useCache = { dataSpec -> isAudioUri(dataSpec.uri) },
+			)
+		}
+	}
+}
+
+/**
+ * Data sink that only writes the first [maxLength] bytes of a resource.
+ */
+@OptIn(UnstableApi::class)
+private class MaxLengthDataSink(
+	private val sink: DataSink,
+	private val maxLength: Long,
+) : DataSink {
+	private var remaining = 0L
+	private var opened = false
+
+	override fun open(dataSpec: DataSpec) {
+		remaining = maxLength - dataSpec.position
+		opened = remaining > 0
+		if (opened) sink.open(dataSpec)
+	}
+
+	override fun write(buffer: ByteArray, offset: Int, length: Int) {
+		if (!opened) return
+
+		val writeLength = minOf(length.toLong(), remaining).toInt()
+		sink.write(buffer, offset, writeLength)
+		remaining -= writeLength
+
+		if (remaining <= 0) close()
+	}
+
+	override fun close() {
+		if (!opened) return
+		opened = false
+		sink.close()
+	}
+}
+
+/**
+ * Data source reading from [cacheDataSource] for data specs matching [useCache] and from
+ * [upstreamDataSource] otherwise.
+ */
+@OptIn(UnstableApi::class)
+private class SelectingDataSource(
+	private val cacheDataSource: DataSource,
+	private val upstreamDataSource: DataSource,
+	private val useCache: (dataSpec: DataSpec) -> Boolean,
+) : DataSource {
+	private var dataSource: DataSource? = null
+
+	override fun addTransferListener(transferListener: TransferListener) {
+		cacheDataSource.addTransferListener(transferListener)
+		upstreamDataSource.addTransferListener(transferListener)
+	}
+
+	override fun open(dataSpec: DataSpec): Long {
+		val dataSource = if (useCache(dataSpec)) cacheDataSource else upstreamDataSource
+		this.dataSource = dataSource
+		return dataSource.open(dataSpec)
+	}
+
+	override fun read(buffer: ByteArray, offset: Int, length: Int): Int =
+		requireNotNull(dataSource).read(buffer, offset, length)
+
+	override fun getUri(): Uri? = dataSource?.uri
+
+	override fun getResponseHeaders(): Map<String, List<String>> = dataSource?.responseHeaders.orEmpty()
+
+	override fun close() {
+		dataSource?.close()
+		dataSource = null
+	}
+}
@@ -0,0 +1,23 @@
+package org.jellyfin.playback.media3.exoplayer.cache
+
+/**
+ * Options for the on-disk media cache. Least recently used media is evicted when the cache exceeds
+ * [maxBytes]. Only the first [maxItemBytes] of each item are cached.
+ */
+data class MediaCacheOptions(
+	val maxBytes: Long = 256L * 1024 * 1024,
+	val maxItemBytes: Long = 64L * 1024 * 1024,
+	val mode: MediaCacheMode = MediaCacheMode.AUDIO,
+)
+
+enum class MediaCacheMode {
+	/**
+	 * Only cache audio streams.
+	 */
+	AUDIO,
+
+	/**
+	 * Cache all streams, including video and HLS segments.
+	 */
+	ALL,
+}
@@ -0,0 +1,131 @@
+package org.jellyfin.playback.media3.exoplayer.stats
+
+import android.media.MediaCodecList
+import android.os.Build
+import androidx.annotation.OptIn
+import androidx.media3.common.Format
+import androidx.media3.common.MediaItem
+import androidx.media3.common.Player
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.exoplayer.DecoderReuseEvaluation
+import androidx.media3.exoplayer.analytics.AnalyticsListener
+import androidx.media3.exoplayer.upstream.BandwidthMeter
+import org.jellyfin.playback.core.stats.PlayerDecoderInfo
+import org.jellyfin.playback.core.stats.PlayerStats
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * Analytics listener collecting [PlayerStats] for an ExoPlayer instance. Events are received on the
+ * application thread of the player, [getStats] must be called from the same thread.
+ */
+@OptIn(UnstableApi::class)
+class ExoPlayerStatsCollector(
+	private val bandwidthMeter: BandwidthMeter? = null,
+) : AnalyticsListener {
+	private var videoFormat: Format? = null
+	private var audioFormat: Format? = null
+	private var videoDecoder: PlayerDecoderInfo? = null
+	private var audioDecoder: PlayerDecoderInfo? = null
+	private var droppedFrames = 0
+	private var rebuffers = 0
+	private var wasReady = false
+	private var seeking = false
+
+	fun getStats(player: Player) = PlayerStats(
+		videoFormat = videoFormat?.let(Format::toLogString),
+		audioFormat = audioFormat?.let(Format::toLogString),
+		videoDecoder = videoDecoder,
+		audioDecoder = audioDecoder,
+		droppedFrames = droppedFrames,
+		bufferHealth = player.totalBufferedDuration.milliseconds,
+		bandwidthEstimate = bandwidthMeter?.bitrateEstimate,
+		rebuffers = rebuffers,
+	)
+
+	override fun onMediaItemTransition(eventTime: AnalyticsListener.EventTime, mediaItem: MediaItem?, reason: Int) {
+		droppedFrames = 0
+		rebuffers = 0
+		wasReady = false
+	}
+
+	override fun onDroppedVideoFrames(eventTime: AnalyticsListener.EventTime, droppedFrames: Int, elapsedMs: Long) {
+		this.droppedFrames += droppedFrames
+	}
+
+	override fun onVideoInputFormatChanged(
+		eventTime: AnalyticsListener.EventTime,
+		format: Format,
+		decoderReuseEvaluation: DecoderReuseEvaluation?,
+	) {
+		videoFormat = format
+	}
+
+	override fun onAudioInputFormatChanged(
+		eventTime: AnalyticsListener.EventTime,
+		format: Format,
+		decoderReuseEvaluation: DecoderReuseEvaluation?,
+	) {
+		audioFormat = format
+	}
+
+	override fun onVideoDecoderInitialized(
+		eventTime: AnalyticsListener.EventTime,
+		decoderName: String,
+		initializedTimestampMs: Long,
+		initializationDurationMs: Long,
+	) {
+		videoDecoder = PlayerDecoderInfo(decoderName, isHardwareAccelerated(decoderName))
+	}
+
+	override fun onAudioDecoderInitialized(
+		eventTime: AnalyticsListener.EventTime,
+		decoderName: String,
+		initializedTimestampMs: Long,
+		initializationDurationMs: Long,
+	) {
+		audioDecoder = PlayerDecoderInfo(decoderName, isHardwareAccelerated(decoderName))
+	}
+
+	override fun onPositionDiscontinuity(
+		eventTime: AnalyticsListener.EventTime,
+		oldPosition: Player.PositionInfo,
+		newPosition: Player.PositionInfo,
+		reason: Int,
+	) {
+		if (reason == Player.DISCONTINUITY_REASON_SEEK) seeking = true
+	}
+
+	override fun onPlaybackStateChanged(eventTime: AnalyticsListener.EventTime, state: Int) {
+		when (state) {
+			// Buffering after being ready is a rebuffer unless caused by seeking
+			Player.STATE_BUFFERING -> if (wasReady && !seeking) rebuffers++
+			Player.STATE_READY -> wasReady = true
+			else -> wasReady = false
+		}
+
+		// The player changes state right after a seek so any buffering caused by it is handled
+		seeking = false
+	}
+
+	override fun onRenderedFirstFrame(eventTime: AnalyticsListener.EventTime, output: Any, renderTimeMs: Long) {
+		// Rendering at the new position without buffering handles a seek within the buffer
+		seeking = false
+	}
+
+	private companion object {
+		private val SOFTWARE_DECODER_PREFIXES = listOf("omx.google.", "c2.android.", "ffmpeg")
+		private val hardwareAccelerated = mutableMapOf<String, Boolean?>()
+
+		fun isHardwareAccelerated(decoderName: String): Boolean? = hardwareAccelerated.getOrPut(decoderName) {
+			val codecInfo = MediaCodecList(MediaCodecList.ALL_CODECS).codecInfos.find { it.name == decoderName }
+
+			when {
+				Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && codecInfo != null -> codecInfo.isHardwareAccelerated
+				SOFTWARE_DECODER_PREFIXES.any { decoderName.lowercase().startsWith(it) } -> false
+				// Non-MediaCodec decoders from extensions are always software decoders
+				codecInfo == null -> false
+				else -> true
+			}
+		}
+	}
+}
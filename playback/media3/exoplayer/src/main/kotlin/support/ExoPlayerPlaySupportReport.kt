@@ -2,10 +2,12 @@ package org.jellyfin.playback.media3.exoplayer.support
 
 import androidx.annotation.OptIn
 import androidx.media3.common.Format
+import androidx.media3.common.MimeTypes
 import androidx.media3.common.util.UnstableApi
 import androidx.media3.exoplayer.BaseRenderer
 import androidx.media3.exoplayer.ExoPlayer
 import androidx.media3.exoplayer.RendererCapabilities
+import org.jellyfin.playback.core.support.CapabilityCache
 import org.jellyfin.playback.core.support.PlaySupportReport
 
 data class ExoPlayerPlaySupportReport(
@@ -46,11 +48,39 @@ data class ExoPlayerPlaySupportReport(
 fun ExoPlayer.getPlaySupportReport(format: Format): ExoPlayerPlaySupportReport =
 	ExoPlayerPlaySupportReport.fromFlags(supportsFormat(format))
 
-fun ExoPlayer.getPlaySupportReport(formats: Collection<Format>): ExoPlayerPlaySupportReport = formats
-	.map { format -> supportsFormat(format) }
+/**
+ * Get the support report for [formats], using [cache] for formats that do not depend on the audio
+ * output. Audio support includes passthrough, which changes with the connected HDMI sink, so audio
+ * formats are always queried.
+ */
+fun ExoPlayer.getPlaySupportReport(
+	formats: Collection<Format>,
+	cache: CapabilityCache? = null,
+): ExoPlayerPlaySupportReport = formats
+	.map { format ->
+		when {
+			cache == null || MimeTypes.isAudio(format.sampleMimeType) -> supportsFormat(format)
+			else -> cache.getOrPutInt(format.supportSignature) { supportsFormat(format) }
+		}
+	}
 	.reduce { acc, i -> acc and i }
 	.let { flags -> ExoPlayerPlaySupportReport.fromFlags(flags) }
 
+/**
+ * Normalized signature of the format properties used by the renderers to determine support. Formats
+ * with the same signature have the same support.
+ */
+@OptIn(UnstableApi::class)
+internal val Format.supportSignature
+	get() = listOf(
+		sampleMimeType,
+		codecs,
+		pcmEncoding,
+		width,
+		height,
+		channelCount,
+		sampleRate,
+	).joinToString("|")
 
 @OptIn(UnstableApi::class)
 fun ExoPlayer.supportsFormat(format: Format): Int {
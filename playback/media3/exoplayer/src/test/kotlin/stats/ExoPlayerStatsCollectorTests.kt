@@ -0,0 +1,59 @@
+package org.jellyfin.playback.media3.exoplayer.stats
+
+import androidx.media3.common.Player
+import androidx.media3.exoplayer.analytics.AnalyticsListener
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.every
+import io.mockk.mockk
+
+class ExoPlayerStatsCollectorTests : FunSpec({
+	val eventTime = mockk<AnalyticsListener.EventTime>()
+	val player = mockk<Player> {
+		every { totalBufferedDuration } returns 0
+	}
+
+	fun ExoPlayerStatsCollector.seek() = onPositionDiscontinuity(
+		eventTime,
+		mockk(),
+		mockk(),
+		Player.DISCONTINUITY_REASON_SEEK,
+	)
+
+	fun ExoPlayerStatsCollector.changeState(vararg states: Int) = states.forEach { state ->
+		onPlaybackStateChanged(eventTime, state)
+	}
+
+	test("Counts buffering after being ready as rebuffer") {
+		val collector = ExoPlayerStatsCollector()
+
+		// Initial buffering
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+		collector.getStats(player).rebuffers shouldBe 0
+
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+		collector.getStats(player).rebuffers shouldBe 2
+	}
+
+	test("Does not count buffering caused by seeking") {
+		val collector = ExoPlayerStatsCollector()
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+
+		collector.seek()
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+		collector.getStats(player).rebuffers shouldBe 0
+	}
+
+	test("Counts rebuffers after a seek without buffering") {
+		val collector = ExoPlayerStatsCollector()
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+
+		// Seek within the buffer
+		collector.seek()
+		collector.onRenderedFirstFrame(eventTime, Any(), 0)
+
+		collector.changeState(Player.STATE_BUFFERING, Player.STATE_READY)
+		collector.getStats(player).rebuffers shouldBe 1
+	}
+})
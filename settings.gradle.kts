@@ -6,6 +6,7 @@ rootProject.name = "jellyfin-androidtv"
 include(":app")
 
 // Modules
+include(":playback:benchmark")
 include(":playback:core")
 include(":playback:jellyfin")
 include(":playback:media3:exoplayer")